@@ -0,0 +1,85 @@
+package es.ujaen.dae.clubsocios.rendimiento;
+
+import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.entidades.Socio;
+import es.ujaen.dae.clubsocios.entidades.Solicitud;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @brief Microbenchmarks de las operaciones de Actividad sobre sus solicitudes,
+ * en función del número de solicitudes que ya tiene la actividad
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BenchmarkActividad {
+
+    @Param({"10", "1000", "10000"})
+    int nSolicitudes;
+
+    // Actividad con el periodo de inscripción abierto
+    Actividad abierta;
+    // Actividad con el periodo de inscripción cerrado, para asignar plazas
+    Actividad cerrada;
+
+    LocalDate hoy;
+    Socio nuevoSocio;
+    Solicitud[] solicitudesCerrada;
+    String[] emails;
+    int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        hoy = LocalDate.now();
+        abierta = new Actividad(1, "Abierta", "Actividad abierta", 10, nSolicitudes + 1, 0,
+                hoy.minusDays(1), hoy.plusDays(10), hoy.plusDays(20));
+        cerrada = new Actividad(2, "Cerrada", "Actividad cerrada", 10, nSolicitudes, 0,
+                hoy.minusDays(1), hoy.plusDays(10), hoy.plusDays(20));
+
+        emails = new String[nSolicitudes];
+        solicitudesCerrada = new Solicitud[nSolicitudes];
+        for (int i = 0; i < nSolicitudes; i++) {
+            emails[i] = "socio" + i + "@club.com";
+            Socio socio = new Socio("Socio", "Prueba", emails[i], "600000000", "clave", false);
+            abierta.crearSolicitud(new Solicitud(i + 1, socio, 0, hoy, 0), hoy);
+            solicitudesCerrada[i] = new Solicitud(i + 1, socio, 0, hoy, 0);
+            cerrada.crearSolicitud(solicitudesCerrada[i], hoy);
+        }
+        // Las solicitudes se crean con la inscripción abierta y después se cierra el periodo
+        cerrada.setFechaInicioInscripcion(hoy.minusDays(20)).setFechaFinInscripcion(hoy.minusDays(10));
+        nuevoSocio = new Socio("Socio", "Nuevo", "nuevo@club.com", "600000000", "clave", true);
+    }
+
+    /**
+     * @implNote Cada invocación crea una solicitud y la cancela para que el tamaño de la lista no varíe,
+     * por lo que el tiempo incluye ambas operaciones.
+     */
+    @Benchmark
+    public Solicitud crearYCancelarSolicitud() {
+        abierta.crearSolicitud(new Solicitud(nSolicitudes + 1, nuevoSocio, 0, hoy, 0), hoy);
+        return abierta.cancelarSolicitud(nSolicitudes + 1, hoy);
+    }
+
+    @Benchmark
+    public Optional<Solicitud> buscarSolicitudPorEmail() {
+        siguiente = (siguiente + 1) % nSolicitudes;
+        return abierta.buscarSolicitudPorEmail(emails[siguiente]);
+    }
+
+    /**
+     * @implNote La plaza se retira tras aceptarla para que siempre queden plazas libres.
+     */
+    @Benchmark
+    public Solicitud aceptarYQuitarPlaza() {
+        siguiente = (siguiente + 1) % nSolicitudes;
+        cerrada.aceptarPlaza(solicitudesCerrada[siguiente], hoy);
+        return cerrada.quitarPlaza(solicitudesCerrada[siguiente], hoy);
+    }
+}
@@ -0,0 +1,43 @@
+package es.ujaen.dae.clubsocios.rendimiento;
+
+import es.ujaen.dae.clubsocios.seguridad.CodificadorClavesCache;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @brief Verificación de una clave correcta con BCrypt frente a la caché de verificaciones de HTTP Basic
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchmarkCodificadorClaves {
+
+    PasswordEncoder bcrypt;
+    PasswordEncoder codificador;
+    String claveCodificada;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        bcrypt = new BCryptPasswordEncoder();
+        codificador = new CodificadorClavesCache(bcrypt, Duration.ofMinutes(5), 10_000);
+        claveCodificada = bcrypt.encode("password123");
+        codificador.matches("password123", claveCodificada);
+    }
+
+    @Benchmark
+    public boolean bcrypt() {
+        return bcrypt.matches("password123", claveCodificada);
+    }
+
+    @Benchmark
+    public boolean conCache() {
+        return codificador.matches("password123", claveCodificada);
+    }
+}
@@ -0,0 +1,69 @@
+package es.ujaen.dae.clubsocios.rendimiento;
+
+import es.ujaen.dae.clubsocios.app.ClubSocios;
+import es.ujaen.dae.clubsocios.repositorios.RepositorioSocios;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @brief Reinicio de las cuotas de todos los socios al empezar la temporada, con una actualización masiva
+ * @implNote Antes de cada invocación se vuelven a marcar todas las cuotas como pagadas, fuera de la medida.
+ * Para medir también la memoria reservada: mvn -Pjmh compile exec:exec -Djmh.args="Cuotas -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchmarkCuotas {
+
+    private static final int TAM_LOTE = 10_000;
+
+    @Param({"100000", "1000000"})
+    int nSocios;
+
+    ConfigurableApplicationContext contexto;
+    RepositorioSocios repositorioSocios;
+    JdbcTemplate jdbcTemplate;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        contexto = new SpringApplicationBuilder(ClubSocios.class)
+                .profiles("test")
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        repositorioSocios = contexto.getBean(RepositorioSocios.class);
+        jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < nSocios; i++) {
+            filas.add(new Object[]{"nombre", "apellidos", "socio" + i + "@club.com", "623456789", "clave", true});
+            if (filas.size() == TAM_LOTE || i == nSocios - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO socio (nombre, apellidos, email, telefono, clave, cuota_pagada) VALUES (?, ?, ?, ?, ?, ?)", filas);
+                filas.clear();
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void marcarPagadas() {
+        jdbcTemplate.update("UPDATE socio SET cuota_pagada = true");
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public void marcarTodasCuotasNoPagadas() {
+        repositorioSocios.marcarTodasCuotasNoPagadas();
+    }
+}
@@ -0,0 +1,89 @@
+package es.ujaen.dae.clubsocios.rendimiento;
+
+import es.ujaen.dae.clubsocios.app.ClubSocios;
+import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.entidades.Socio;
+import es.ujaen.dae.clubsocios.entidades.Solicitud;
+import es.ujaen.dae.clubsocios.repositorios.RepositorioActividades;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @brief Importación de solicitudes guardándolas una a una frente a RepositorioActividades.guardarSolicitudes
+ * @implNote Cada iteración guarda todas las solicitudes de una vez, así que se mide en modo SingleShotTime;
+ * antes de cada iteración se borran las solicitudes guardadas en la anterior.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchmarkGuardarSolicitudes {
+
+    @Param({"10000"})
+    int nSolicitudes;
+
+    ConfigurableApplicationContext contexto;
+    RepositorioActividades repositorioActividades;
+    JdbcTemplate jdbcTemplate;
+    Actividad actividad;
+    List<Socio> socios;
+    List<Solicitud> solicitudes;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        contexto = new SpringApplicationBuilder(ClubSocios.class)
+                .profiles("test")
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        repositorioActividades = contexto.getBean(RepositorioActividades.class);
+        jdbcTemplate = contexto.getBean(JdbcTemplate.class);
+
+        actividad = repositorioActividades.guardarActividad(new Actividad("Actividad", "Descripcion", 10, nSolicitudes,
+                LocalDate.now(), LocalDate.now().plusDays(2), LocalDate.now().plusDays(10)));
+
+        socios = new ArrayList<>();
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < nSolicitudes; i++) {
+            Socio socio = new Socio("nombre", "apellidos", "socio" + i + "@club.com", "623456789", "clave");
+            socios.add(socio);
+            filas.add(new Object[]{socio.getNombre(), socio.getApellidos(), socio.getEmail(), socio.getTelefono(), socio.getClave(), false});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO socio (nombre, apellidos, email, telefono, clave, cuota_pagada) VALUES (?, ?, ?, ?, ?, ?)", filas);
+    }
+
+    @Setup(Level.Iteration)
+    public void nuevasSolicitudes() {
+        jdbcTemplate.update("DELETE FROM solicitud");
+        solicitudes = new ArrayList<>(nSolicitudes);
+        for (Socio socio : socios) {
+            Solicitud solicitud = new Solicitud(socio, 0, LocalDate.now());
+            solicitud.setActividad(actividad);
+            solicitudes.add(solicitud);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public void unaAUna() {
+        for (Solicitud solicitud : solicitudes)
+            repositorioActividades.guardarSolicitud(actividad, solicitud);
+    }
+
+    @Benchmark
+    public void enLotes() {
+        repositorioActividades.guardarSolicitudes(solicitudes);
+    }
+}
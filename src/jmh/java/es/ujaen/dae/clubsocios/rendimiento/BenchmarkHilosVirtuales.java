@@ -0,0 +1,97 @@
+package es.ujaen.dae.clubsocios.rendimiento;
+
+import es.ujaen.dae.clubsocios.app.ClubSocios;
+import es.ujaen.dae.clubsocios.rest.dto.DTOActividad;
+import es.ujaen.dae.clubsocios.rest.dto.DTOSocio;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @brief Servidor con hilos de plataforma frente a hilos virtuales (perfil virtuales) con más clientes
+ * concurrentes que hilos tiene Tomcat por defecto (200)
+ * @implNote Ambos modos usan el mismo tamaño de pool de conexiones. Cada hilo de JMH es un cliente que alterna
+ * la consulta de su perfil, autenticándose con HTTP Basic, y el listado de actividades; el modo SampleTime
+ * da los percentiles de latencia (p99) y el número de muestras por segundo, las peticiones atendidas.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+public class BenchmarkHilosVirtuales {
+
+    private static final int N_SOCIOS = 20;
+
+    @State(Scope.Benchmark)
+    public static class Servidor {
+        @Param({"false", "true"})
+        boolean virtuales;
+
+        ConfigurableApplicationContext contexto;
+        HttpClient cliente;
+        String raiz;
+
+        @Setup(Level.Trial)
+        public void arrancar() {
+            contexto = new SpringApplicationBuilder(ClubSocios.class)
+                    .profiles(virtuales ? new String[]{"test", "virtuales"} : new String[]{"test"})
+                    .properties("server.port=0", "logging.level.root=WARN", "spring.datasource.hikari.maximum-pool-size=20")
+                    .run();
+            raiz = "http://localhost:" + contexto.getEnvironment().getProperty("local.server.port") + "/club";
+            var rest = new RestTemplateBuilder().rootUri(raiz).build();
+
+            //Socios con los que se autentican los clientes y una actividad que consultar
+            for (int i = 0; i < N_SOCIOS; i++)
+                rest.postForEntity("/socios", new DTOSocio("Socio", "Prueba", "socio" + i + "@club.com", "621302025", "password123"), Void.class);
+            rest.postForEntity("/actividades", new DTOActividad(0, "Actividad de prueba", "Actividad de prueba", 10,
+                    10, 0, LocalDate.now(), LocalDate.now().plusDays(7), LocalDate.now().plusDays(10)), DTOActividad.class);
+
+            cliente = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        }
+
+        @TearDown(Level.Trial)
+        public void parar() {
+            contexto.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cliente {
+        HttpRequest perfil;
+        HttpRequest actividades;
+        long peticiones;
+
+        @Setup(Level.Trial)
+        public void preparar(Servidor servidor, ThreadParams hilo) {
+            String email = "socio" + (hilo.getThreadIndex() % N_SOCIOS) + "@club.com";
+            String credenciales = "Basic " + Base64.getEncoder().encodeToString((email + ":password123").getBytes(StandardCharsets.UTF_8));
+            perfil = HttpRequest.newBuilder(URI.create(servidor.raiz + "/socios/" + email))
+                    .header("Authorization", credenciales).build();
+            actividades = HttpRequest.newBuilder(URI.create(servidor.raiz + "/actividades?anio=" + LocalDate.now().getYear()))
+                    .header("Authorization", credenciales).build();
+        }
+    }
+
+    @Benchmark
+    public int peticion(Servidor servidor, Cliente cliente) throws IOException, InterruptedException {
+        HttpRequest peticion = cliente.peticiones++ % 2 == 0 ? cliente.perfil : cliente.actividades;
+        HttpResponse<String> respuesta = servidor.cliente.send(peticion, HttpResponse.BodyHandlers.ofString());
+        if (respuesta.statusCode() != 200)
+            throw new IllegalStateException("Respuesta " + respuesta.statusCode() + " de " + peticion.uri());
+        return respuesta.body().length();
+    }
+}
@@ -0,0 +1,51 @@
+package es.ujaen.dae.clubsocios.rendimiento;
+
+import es.ujaen.dae.clubsocios.entidades.Socio;
+import es.ujaen.dae.clubsocios.servicios.IndiceSocios;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @brief Búsquedas por prefijo en el índice de socios con un millón de socios
+ * @implNote Los nombres y apellidos se combinan de listas cortas, así que los prefijos comunes coinciden con
+ * cientos de miles de socios; la búsqueda solo recorre los que devuelve.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class BenchmarkIndiceSocios {
+
+    private static final int N_SOCIOS = 1_000_000;
+    private static final int TAM = 10;
+
+    private static final String[] NOMBRES = {"María", "José", "Antonio", "Carmen", "Manuel", "Ana", "Francisco", "Lucía",
+            "David", "Laura", "Javier", "Marta", "Daniel", "Elena", "Pablo", "Sara"};
+    private static final String[] APELLIDOS = {"García", "Rodríguez", "González", "Fernández", "López", "Martínez",
+            "Sánchez", "Pérez", "Gómez", "Martín", "Jiménez", "Ruiz", "Hernández", "Díaz", "Moreno", "Muñoz"};
+
+    @Param({"mar", "gonzalez ", "socio123456", "zz"})
+    String prefijo;
+
+    IndiceSocios indice;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        Random aleatorio = new Random(42);
+        indice = new IndiceSocios();
+        for (int i = 0; i < N_SOCIOS; i++) {
+            String apellidos = APELLIDOS[aleatorio.nextInt(APELLIDOS.length)] + " " + APELLIDOS[aleatorio.nextInt(APELLIDOS.length)];
+            indice.anadir(new Socio(NOMBRES[aleatorio.nextInt(NOMBRES.length)], apellidos, "socio" + i + "@club.com", "600000000", "clave"));
+        }
+    }
+
+    @Benchmark
+    public List<Socio> buscar() {
+        return indice.buscar(prefijo, TAM);
+    }
+}
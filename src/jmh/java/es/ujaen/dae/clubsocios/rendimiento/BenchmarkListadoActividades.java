@@ -0,0 +1,66 @@
+package es.ujaen.dae.clubsocios.rendimiento;
+
+import es.ujaen.dae.clubsocios.app.ClubSocios;
+import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.rest.dto.DTOActividad;
+import es.ujaen.dae.clubsocios.rest.dto.Mapeador;
+import es.ujaen.dae.clubsocios.servicios.ServicioClub;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @brief Listado de las actividades de una temporada grande: entidades convertidas a DTO frente a la proyección a DTO
+ * @implNote Para medir también la memoria reservada por listado: mvn -Pjmh compile exec:exec -Djmh.args="ListadoActividades -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchmarkListadoActividades {
+
+    private static final int N_ACTIVIDADES = 5000;
+
+    ConfigurableApplicationContext contexto;
+    ServicioClub servicioClub;
+    Mapeador mapeador;
+    int anio;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        contexto = new SpringApplicationBuilder(ClubSocios.class)
+                .profiles("test")
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        servicioClub = contexto.getBean(ServicioClub.class);
+        mapeador = contexto.getBean(Mapeador.class);
+
+        LocalDate hoy = LocalDate.now();
+        anio = hoy.getYear();
+        for (int i = 0; i < N_ACTIVIDADES; i++) {
+            servicioClub.crearActividad(new Actividad("Actividad " + i, "Descripción de la actividad " + i, 10, 50,
+                    hoy.minusDays(1), hoy.plusDays(10), hoy.plusDays(20)));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public List<DTOActividad> entidades() {
+        return servicioClub.buscarActividadesTemporada(anio, 0, N_ACTIVIDADES).stream().map(a -> mapeador.dtoActividad(a)).toList();
+    }
+
+    @Benchmark
+    public List<DTOActividad> proyeccion() {
+        return servicioClub.listarActividadesTemporada(anio, 0, N_ACTIVIDADES);
+    }
+}
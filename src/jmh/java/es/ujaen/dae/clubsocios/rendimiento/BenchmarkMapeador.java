@@ -0,0 +1,58 @@
+package es.ujaen.dae.clubsocios.rendimiento;
+
+import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.entidades.Socio;
+import es.ujaen.dae.clubsocios.entidades.Solicitud;
+import es.ujaen.dae.clubsocios.rest.dto.DTOActividad;
+import es.ujaen.dae.clubsocios.rest.dto.DTOSolicitud;
+import es.ujaen.dae.clubsocios.rest.dto.Mapeador;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @brief Microbenchmarks de la conversión de listados de entidades a DTOs
+ * @implNote Solo se miden las conversiones a DTO, que no usan los componentes inyectados en Mapeador.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class BenchmarkMapeador {
+
+    @Param({"10", "1000", "10000"})
+    int tamListado;
+
+    Mapeador mapeador;
+    List<Actividad> actividades;
+    List<Solicitud> solicitudes;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        LocalDate hoy = LocalDate.now();
+        mapeador = new Mapeador();
+        actividades = new ArrayList<>(tamListado);
+        solicitudes = new ArrayList<>(tamListado);
+        for (int i = 0; i < tamListado; i++) {
+            actividades.add(new Actividad(i + 1, "Actividad " + i, "Descripción de la actividad " + i, 10, 50, 0,
+                    hoy.minusDays(1), hoy.plusDays(10), hoy.plusDays(20)));
+            Socio socio = new Socio("Socio", "Prueba", "socio" + i + "@club.com", "600000000", "clave");
+            solicitudes.add(new Solicitud(i + 1, socio, i % 3, hoy, 0));
+        }
+    }
+
+    @Benchmark
+    public List<DTOActividad> dtoActividades() {
+        return actividades.stream().map(mapeador::dtoActividad).toList();
+    }
+
+    @Benchmark
+    public List<DTOSolicitud> dtoSolicitudes() {
+        return solicitudes.stream().map(mapeador::dto).toList();
+    }
+}
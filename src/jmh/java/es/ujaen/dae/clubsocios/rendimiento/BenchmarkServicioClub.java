@@ -0,0 +1,72 @@
+package es.ujaen.dae.clubsocios.rendimiento;
+
+import es.ujaen.dae.clubsocios.app.ClubSocios;
+import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.entidades.Socio;
+import es.ujaen.dae.clubsocios.entidades.Solicitud;
+import es.ujaen.dae.clubsocios.servicios.ServicioClub;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @brief Benchmarks de extremo a extremo de ServicioClub contra la base de datos H2 del perfil de test
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BenchmarkServicioClub {
+
+    private static final String CLAVE_ADMIN = "$2a$10$JAfCuJzY1t.zIfTfhX7Zb.ep0zj0J/c4i7LXDa6.cAg0b6ikt94LG";
+
+    ConfigurableApplicationContext contexto;
+    ServicioClub servicioClub;
+    Socio socio;
+    int idActividad;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        contexto = new SpringApplicationBuilder(ClubSocios.class)
+                .profiles("test")
+                .properties("server.port=0", "logging.level.root=WARN")
+                .run();
+        servicioClub = contexto.getBean(ServicioClub.class);
+
+        socio = new Socio("Socio", "Prueba", "socio_prueba@club.com", "621302025", "password123");
+        servicioClub.crearSocio(socio);
+        servicioClub.marcarCuotaPagada(servicioClub.login("admin@club.com", CLAVE_ADMIN), socio);
+
+        LocalDate hoy = LocalDate.now();
+        Actividad actividad = new Actividad("Senderismo", "Ruta por la sierra", 10, 1000,
+                hoy.minusDays(1), hoy.plusDays(10), hoy.plusDays(20));
+        servicioClub.crearActividad(actividad);
+        idActividad = actividad.getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    @Benchmark
+    public Socio login() {
+        return servicioClub.login(socio.getEmail(), "password123");
+    }
+
+    /**
+     * @implNote Cada invocación crea la solicitud y la cancela, ya que un socio solo puede tener
+     * una solicitud por actividad; el tiempo incluye ambas transacciones.
+     */
+    @Benchmark
+    public Solicitud crearYCancelarSolicitud() {
+        Solicitud solicitud = servicioClub.crearSolicitud(socio.getEmail(), idActividad, 1);
+        servicioClub.cancelarSolicitud(idActividad, solicitud.getId());
+        return solicitud;
+    }
+}
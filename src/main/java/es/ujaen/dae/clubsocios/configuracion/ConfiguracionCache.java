@@ -0,0 +1,65 @@
+package es.ujaen.dae.clubsocios.configuracion;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+@Configuration
+public class ConfiguracionCache {
+
+    // Regiones de la caché de segundo nivel de Hibernate. Las actividades no se guardan en caché: se leen bloqueadas
+    // para cambiar sus plazas ocupadas en cada solicitud, y las abiertas ya se sirven de una instantánea
+    public static final String SOCIOS = "socios";
+    public static final String TEMPORADAS = "temporadas";
+
+    /**
+     * @param tamanoMaximo número máximo de entidades por región
+     * @param expiracion   tiempo que una entidad permanece en caché desde que se escribe
+     * @return gestor de cachés con una caché Caffeine acotada por cada región
+     * @brief Crea las cachés de entidades
+     * @implNote Cada contexto de Spring usa su propio gestor, para que no se compartan cachés
+     * entre contextos que apuntan a bases de datos distintas.
+     */
+    @Bean(destroyMethod = "close")
+    CacheManager gestorCacheEntidades(@Value("${clubsocios.cache.tamano-maximo:10000}") long tamanoMaximo,
+                                      @Value("${clubsocios.cache.expiracion:10m}") Duration expiracion) {
+        CachingProvider proveedor = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager gestor = proveedor.getCacheManager(URI.create("clubsocios-" + UUID.randomUUID()), proveedor.getDefaultClassLoader());
+
+        for (String region : List.of(SOCIOS, TEMPORADAS)) {
+            CaffeineConfiguration<Object, Object> configuracion = new CaffeineConfiguration<>();
+            configuracion.setMaximumSize(OptionalLong.of(tamanoMaximo));
+            configuracion.setExpireAfterWrite(OptionalLong.of(expiracion.toNanos()));
+            configuracion.setStatisticsEnabled(true);
+            gestor.createCache(region, configuracion);
+        }
+        return gestor;
+    }
+
+    /**
+     * @param gestorCacheEntidades gestor con las cachés de entidades
+     * @return personalización de las propiedades de Hibernate
+     * @brief Activa la caché de segundo nivel de Hibernate sobre las cachés Caffeine
+     */
+    @Bean
+    HibernatePropertiesCustomizer cacheSegundoNivel(CacheManager gestorCacheEntidades) {
+        return propiedades -> {
+            propiedades.put("hibernate.cache.use_second_level_cache", true);
+            propiedades.put("hibernate.cache.region.factory_class", "jcache");
+            propiedades.put("hibernate.javax.cache.cache_manager", gestorCacheEntidades);
+            propiedades.put("hibernate.javax.cache.missing_cache_strategy", "fail");
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package es.ujaen.dae.clubsocios.configuracion;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ConfiguracionGeneradorIds {
+
+    // Conexiones de reserva: solo las usa una reserva de bloque de ids a la vez por entidad
+    private static final int CONEXIONES_RESERVA = 2;
+
+    /**
+     * @param propiedades propiedades de la base de datos principal (spring.datasource)
+     * @return pool de conexiones de las reservas de bloques de ids
+     * @brief Crea el pool de conexiones de las reservas de bloques de ids
+     * @implNote El pool no se publica como DataSource para no sustituir al que configura Spring Boot.
+     */
+    @Bean(destroyMethod = "close")
+    ReservaIds reservaIds(DataSourceProperties propiedades) {
+        HikariDataSource pool = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        pool.setPoolName("reserva-ids");
+        pool.setMaximumPoolSize(CONEXIONES_RESERVA);
+        pool.setMinimumIdle(0);
+        return new ReservaIds(pool);
+    }
+
+    /**
+     * @param reservaIds pool de conexiones de las reservas de bloques de ids
+     * @return personalización de las propiedades de Hibernate
+     * @brief Entrega el pool de reserva a los generadores de ids por bloques
+     * @implNote Los ids se reservan mientras la transacción en curso conserva su conexión. Si la reserva la
+     * pidiera al mismo pool, con todas las conexiones ocupadas por transacciones que esperan a una fila que
+     * tiene bloqueada la que reserva, ninguna avanzaría hasta agotar el tiempo de espera.
+     */
+    @Bean
+    HibernatePropertiesCustomizer generadorIdsConReserva(ReservaIds reservaIds) {
+        return propiedades -> propiedades.put(GeneradorIdsPorBloques.RESERVA, reservaIds.pool());
+    }
+
+    /**
+     * @param pool conexiones que solo usan las reservas de bloques de ids
+     */
+    record ReservaIds(HikariDataSource pool) implements AutoCloseable {
+        @Override
+        public void close() {
+            pool.close();
+        }
+    }
+}
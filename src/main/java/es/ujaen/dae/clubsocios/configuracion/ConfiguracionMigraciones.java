@@ -0,0 +1,25 @@
+package es.ujaen.dae.clubsocios.configuracion;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Configuration
+@Profile("test")
+public class ConfiguracionMigraciones {
+
+    /**
+     * @return estrategia de migración que vacía la base de datos antes de migrarla
+     * @brief Parte de una base de datos vacía en cada contexto de test
+     * @implNote La base de datos H2 en memoria sobrevive a los contextos (DB_CLOSE_DELAY=-1),
+     * por lo que sin limpiarla cada contexto vería los datos del anterior.
+     */
+    @Bean
+    FlywayMigrationStrategy migracionLimpia() {
+        return flyway -> {
+            flyway.clean();
+            flyway.migrate();
+        };
+    }
+}
@@ -0,0 +1,20 @@
+package es.ujaen.dae.clubsocios.configuracion;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+public class ConfiguracionReloj {
+
+    /**
+     * @return reloj del sistema en la zona horaria por defecto
+     * @brief Reloj del que se obtiene la fecha actual en toda la aplicación
+     * @implNote Los tests pueden sustituirlo por un reloj controlado.
+     */
+    @Bean
+    Clock reloj() {
+        return Clock.systemDefaultZone();
+    }
+}
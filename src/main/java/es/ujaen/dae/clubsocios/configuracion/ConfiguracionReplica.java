@@ -0,0 +1,79 @@
+package es.ujaen.dae.clubsocios.configuracion;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+@Configuration
+@ConditionalOnProperty(prefix = "clubsocios.replica", name = "url")
+public class ConfiguracionReplica {
+
+    // Destinos del enrutado de conexiones
+    enum Destino {PRINCIPAL, REPLICA}
+
+    /**
+     * @return pool de conexiones de la base de datos principal, configurado con spring.datasource
+     * @brief Base de datos que recibe las escrituras y las transacciones de lectura y escritura
+     */
+    @Bean(autowireCandidate = false)
+    HikariDataSource principal(DataSourceProperties propiedades, Environment entorno) {
+        return pool("principal", propiedades, entorno);
+    }
+
+    /**
+     * @return pool de conexiones de la réplica, configurado con clubsocios.replica
+     * @brief Base de datos que recibe las transacciones de solo lectura
+     * @implNote El usuario y la clave son los de la base de datos principal salvo que se indiquen
+     * en clubsocios.replica.username y clubsocios.replica.password.
+     */
+    @Bean(autowireCandidate = false)
+    HikariDataSource replica(DataSourceProperties propiedades, Environment entorno) {
+        HikariDataSource replica = pool("replica", propiedades, entorno);
+        replica.setJdbcUrl(entorno.getRequiredProperty("clubsocios.replica.url"));
+        replica.setUsername(entorno.getProperty("clubsocios.replica.username", replica.getUsername()));
+        replica.setPassword(entorno.getProperty("clubsocios.replica.password", replica.getPassword()));
+        return replica;
+    }
+
+    /**
+     * @return origen de datos que envía cada transacción a la base de datos principal o a la réplica
+     * @brief Enruta las transacciones de solo lectura a la réplica
+     * @implNote La conexión real se obtiene en la primera sentencia, cuando la transacción ya ha publicado
+     * si es de solo lectura; por eso el enrutador va envuelto en LazyConnectionDataSourceProxy. Lo que
+     * se ejecuta fuera de una transacción (Flyway, la validación del esquema) va a la principal.
+     */
+    @Bean
+    @Primary
+    DataSource dataSource(DataSourceProperties propiedades, Environment entorno) {
+        AbstractRoutingDataSource enrutador = new AbstractRoutingDataSource() {
+            @Override
+            protected Object determineCurrentLookupKey() {
+                return TransactionSynchronizationManager.isCurrentTransactionReadOnly() ? Destino.REPLICA : Destino.PRINCIPAL;
+            }
+        };
+        DataSource principal = principal(propiedades, entorno);
+        enrutador.setTargetDataSources(Map.of(Destino.PRINCIPAL, principal, Destino.REPLICA, replica(propiedades, entorno)));
+        enrutador.setDefaultTargetDataSource(principal);
+        enrutador.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(enrutador);
+    }
+
+    private static HikariDataSource pool(String nombre, DataSourceProperties propiedades, Environment entorno) {
+        HikariDataSource pool = propiedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(entorno).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(nombre);
+        return pool;
+    }
+}
@@ -0,0 +1,28 @@
+package es.ujaen.dae.clubsocios.configuracion;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+@Configuration
+public class ConfiguracionRespuestasAsincronas implements WebMvcConfigurer {
+    /** Tiempo que se deja a una exportación para terminar o detectar que se ha pasado de su límite */
+    private static final Duration MARGEN = Duration.ofMinutes(1);
+
+    @Value("${clubsocios.exportacion.limite:PT5M}")
+    Duration limiteExportacion;
+
+    /**
+     * @param configuracion configuración de las peticiones asíncronas de Spring MVC
+     * @brief Tiempo máximo de las respuestas que se escriben por partes (exportaciones y listados NDJSON)
+     * @implNote Sin él se aplica el del contenedor (30 s en Tomcat), que cortaría con un 200 una
+     * exportación larga antes de que su propio límite la interrumpa y libere la transacción y el cursor.
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configuracion) {
+        configuracion.setDefaultTimeout(limiteExportacion.plus(MARGEN).toMillis());
+    }
+}
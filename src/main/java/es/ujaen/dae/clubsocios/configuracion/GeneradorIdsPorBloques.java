@@ -0,0 +1,96 @@
+package es.ujaen.dae.clubsocios.configuracion;
+
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerationException;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Member;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * @brief Generador de ids que reserva bloques de la tabla generador_ids con conexiones del pool de reserva
+ * @implNote Cada fila de generador_ids guarda el primer id del siguiente bloque. Como los ids se conocen
+ * antes de insertar, Hibernate puede agrupar las inserciones en lotes JDBC.
+ */
+public class GeneradorIdsPorBloques implements IdentifierGenerator {
+    // Propiedad de Hibernate con el DataSource del que se sacan las conexiones de las reservas
+    public static final String RESERVA = "clubsocios.generador-ids.reserva";
+
+    private final String entidad;
+    private final int tamBloque;
+    private final DataSource reserva;
+    private final ReentrantLock cerrojo = new ReentrantLock();
+
+    private int siguiente;
+    private int fin;
+
+    public GeneradorIdsPorBloques(IdPorBloques configuracion, Member miembro, CustomIdGeneratorCreationContext contexto) {
+        this.entidad = configuracion.entidad();
+        this.tamBloque = configuracion.tamBloque();
+        this.reserva = (DataSource) contexto.getServiceRegistry().requireService(ConfigurationService.class)
+                .getSettings().get(RESERVA);
+        if (reserva == null)
+            throw new IdentifierGenerationException("Falta la propiedad " + RESERVA + " para generar los ids de " + entidad);
+    }
+
+    /**
+     * @param sesion sesión que inserta la entidad
+     * @param objeto entidad que se inserta
+     * @return siguiente id del bloque en curso, reservando otro si se ha agotado
+     * @implNote Se usa un cerrojo en lugar de synchronized para no fijar el hilo virtual a su hilo
+     * portador mientras se espera a la base de datos.
+     */
+    @Override
+    public Object generate(SharedSessionContractImplementor sesion, Object objeto) {
+        cerrojo.lock();
+        try {
+            if (siguiente == fin) {
+                siguiente = reservarBloque();
+                fin = siguiente + tamBloque;
+            }
+            return siguiente++;
+        } finally {
+            cerrojo.unlock();
+        }
+    }
+
+    /**
+     * @return primer id del bloque reservado
+     * @brief Reserva un bloque de ids en su propia transacción
+     * @implNote La conexión sale del pool de reserva y no de la sesión: quien inserta puede tener bloqueadas
+     * filas por las que esperan otras transacciones que ocupan todo el pool principal.
+     */
+    private int reservarBloque() {
+        try (Connection conexion = reserva.getConnection()) {
+            conexion.setAutoCommit(false);
+            try (PreparedStatement actualizar = conexion.prepareStatement(
+                    "update generador_ids set siguiente = siguiente + ? where entidad = ?");
+                 PreparedStatement consultar = conexion.prepareStatement(
+                         "select siguiente from generador_ids where entidad = ?")) {
+                actualizar.setInt(1, tamBloque);
+                actualizar.setString(2, entidad);
+                if (actualizar.executeUpdate() != 1)
+                    throw new IdentifierGenerationException("No hay fila de " + entidad + " en generador_ids");
+                consultar.setString(1, entidad);
+                try (ResultSet fila = consultar.executeQuery()) {
+                    fila.next();
+                    int primero = fila.getInt(1) - tamBloque;
+                    conexion.commit();
+                    return primero;
+                }
+            } catch (SQLException | RuntimeException e) {
+                conexion.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IdentifierGenerationException("No se ha podido reservar un bloque de ids de " + entidad, e);
+        }
+    }
+}
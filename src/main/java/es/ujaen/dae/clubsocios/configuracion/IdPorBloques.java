@@ -0,0 +1,22 @@
+package es.ujaen.dae.clubsocios.configuracion;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * @brief Id generado por bloques reservados en la tabla generador_ids (GeneradorIdsPorBloques)
+ */
+@IdGeneratorType(GeneradorIdsPorBloques.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface IdPorBloques {
+    /** Fila de generador_ids de la que se reservan los ids */
+    String entidad();
+
+    /** Número de ids que se reservan de una vez */
+    int tamBloque() default 50;
+}
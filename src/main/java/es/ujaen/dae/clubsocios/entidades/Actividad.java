@@ -1,21 +1,24 @@
 package es.ujaen.dae.clubsocios.entidades;
 
+import es.ujaen.dae.clubsocios.configuracion.IdPorBloques;
 import es.ujaen.dae.clubsocios.excepciones.*;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
 import jakarta.validation.constraints.PositiveOrZero;
+import org.hibernate.Hibernate;
 
 import java.time.LocalDate;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_actividad_inscripcion", columnList = "fecha_fin_inscripcion, fecha_inicio_inscripcion"),
+        @Index(name = "idx_actividad_pendientes", columnList = "plazas_asignadas, fecha_fin_inscripcion")})
 public class Actividad {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdPorBloques(entidad = "actividad")
     private int id;
     @NotBlank
     private String titulo;
@@ -33,9 +36,24 @@ public class Actividad {
     private LocalDate fechaFinInscripcion;
     @NotNull
     private LocalDate fechaCelebracion;
-    @OneToMany
-    @JoinColumn(name = "actividad")
+    @OneToMany(mappedBy = "actividad")
     private List<Solicitud> solicitudes;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "temporada")
+    Temporada temporada;
+    @Version
+    private int version;
+    // La lista de espera ya ha recorrido la asignación automática de plazas
+    private boolean plazasAsignadas;
+
+    // Índices en memoria de las solicitudes, construidos bajo demanda a partir de la colección persistente
+    @Transient
+    private Map<Integer, Solicitud> solicitudesPorId;
+    @Transient
+    private Map<String, Solicitud> solicitudesPorEmail;
+    // Solicitudes añadidas antes de que se les asignara un id
+    @Transient
+    private List<Solicitud> solicitudesSinId;
 
     /**
      * @brief Constructor por defecto de la clase Actividad
@@ -94,156 +112,280 @@ public class Actividad {
         return getId();
     }
 
+    /**
+     * @brief Construye los índices de solicitudes si aún no se han construido
+     */
+    private void indexarSolicitudes() {
+        if (solicitudesPorEmail != null)
+            return;
+
+        solicitudesPorId = new HashMap<>();
+        solicitudesPorEmail = new HashMap<>();
+        solicitudesSinId = new LinkedList<>();
+        for (Solicitud solicitud : solicitudes) {
+            indexarSolicitud(solicitud);
+        }
+    }
+
+    /**
+     * @param solicitud solicitud a indexar
+     * @brief Añade una solicitud a los índices
+     */
+    private void indexarSolicitud(Solicitud solicitud) {
+        if (solicitud.getId() == 0)
+            solicitudesSinId.add(solicitud);
+        else
+            solicitudesPorId.put(solicitud.getId(), solicitud);
+        solicitudesPorEmail.put(solicitud.getSocio().getEmail(), solicitud);
+    }
+
+    /**
+     * @param solicitud solicitud a eliminar
+     * @brief Elimina una solicitud de los índices
+     */
+    private void desindexarSolicitud(Solicitud solicitud) {
+        solicitudesPorId.remove(solicitud.getId());
+        solicitudesPorEmail.remove(solicitud.getSocio().getEmail());
+        solicitudesSinId.remove(solicitud);
+    }
+
+    /**
+     * @param solicitud solicitud a comprobar
+     * @throws SolicitudNoExistente si la solicitud no es de esta actividad
+     * @brief Comprueba que una solicitud pertenece a la actividad sin recorrer sus solicitudes
+     */
+    private void comprobarSolicitud(Solicitud solicitud) {
+        if (solicitud.actividad == null || solicitud.actividad.getId() != id)
+            throw new SolicitudNoExistente();
+    }
+
     /**
      * @param email email del solicitante
      * @return solicitud de inscripción a la actividad
      * @brief Comprueba si existe una solicitud de inscripción a la actividad
      */
     public Optional<Solicitud> buscarSolicitudPorEmail(String email) {
-
-        if (solicitudes.isEmpty()) {
-            return Optional.empty();
-        }
-        for (Solicitud solicitud : solicitudes) {
-            if (solicitud.getSocio().getEmail().equals(email)) {
-                return Optional.of(solicitud);
-            }
-        }
-        return Optional.empty();
+        indexarSolicitudes();
+        return Optional.ofNullable(solicitudesPorEmail.get(email));
     }
 
     /**
      * @param id id de la solicitud
      * @return solicitud de inscripción a la actividad
      * @brief Busca una solicitud de inscripción a la actividad
+     * @implNote Las solicitudes añadidas sin id solo se revisan cuando el id buscado no está en el índice;
+     * las que ya lo han recibido al persistirse pasan entonces al índice por id.
      */
     public Optional<Solicitud> buscarSolicitudPorId(int id) {
-
-        if (solicitudes.isEmpty()) {
-            return Optional.empty();
-        }
-        for (Solicitud solicitud : solicitudes) {
-            if (solicitud.getId() == id) {
-                return Optional.of(solicitud);
+        indexarSolicitudes();
+        Solicitud solicitud = solicitudesPorId.get(id);
+        if (solicitud == null && !solicitudesSinId.isEmpty()) {
+            Iterator<Solicitud> it = solicitudesSinId.iterator();
+            while (it.hasNext()) {
+                Solicitud sinId = it.next();
+                if (sinId.getId() != 0) {
+                    solicitudesPorId.put(sinId.getId(), sinId);
+                    it.remove();
+                }
             }
+            solicitud = solicitudesPorId.get(id);
         }
-        return Optional.empty();
+        return Optional.ofNullable(solicitud);
     }
 
     /**
      * @param solicitud solicitud a añadir
+     * @param hoy       fecha actual
+     * @throws InscripcionCerrada   si el periodo de inscripción no está abierto
+     * @throws SolicitudYaRealizada si el socio ya tiene una solicitud en la actividad
      * @brief Crea una solicitud de inscripción a la actividad
+     * @implNote Si las solicitudes de una actividad gestionada no están cargadas, no se leen: la nueva se
+     * añade a la colección sin inicializarla y la solicitud repetida la rechaza la restricción de unicidad
+     * al guardarla (RepositorioActividades.guardarSolicitud).
      */
-    public void crearSolicitud(Solicitud solicitud) {
+    public void crearSolicitud(Solicitud solicitud, LocalDate hoy) {
         //Comprobamos que la actividad esté abierta.
-        if (this.isAbierta()) {
-
-            //Comprobamos que no haya una solicitud del mismo socio.
-            if (buscarSolicitudPorEmail(solicitud.getSocio().getEmail()).isPresent()) {
-                throw new SolicitudYaRealizada();
-            }
+        if (!this.isAbierta(hoy))
+            throw new InscripcionCerrada();
 
-            //Aumentamos las plazas ocupadas si quedan plazas y el socio tiene la cuota pagada.
-            if (plazasOcupadas < plazas && solicitud.socio.isCuotaPagada()) {
-                //Si el socio tiene la cuota pagada, se le asigna una plaza.
-                solicitud.setPlazasAceptadas(1);
-                plazasOcupadas++;
-            }
-            //Añadimos la solicitud a la lista de solicitudes, aunque no tenga la cuota pagada.
-            solicitudes.add(solicitud);
+        //Comprobamos que no haya una solicitud del mismo socio.
+        if (Hibernate.isInitialized(solicitudes) && buscarSolicitudPorEmail(solicitud.getSocio().getEmail()).isPresent())
+            throw new SolicitudYaRealizada();
 
-        } else {
-            throw new InscripcionCerrada();
+        //Aumentamos las plazas ocupadas si quedan plazas y el socio tiene la cuota pagada.
+        if (plazasOcupadas < plazas && solicitud.socio.isCuotaPagada()) {
+            //Si el socio tiene la cuota pagada, se le asigna una plaza.
+            solicitud.setPlazasAceptadas(1);
+            plazasOcupadas++;
         }
+        //Añadimos la solicitud a la lista de solicitudes, aunque no tenga la cuota pagada.
+        solicitud.setActividad(this);
+        solicitudes.add(solicitud);
+        if (solicitudesPorEmail != null)
+            indexarSolicitud(solicitud);
     }
 
     /**
-     * @param solicitud solicitud que se quiere cancelar
+     * @param idSolicitud id de la solicitud que se quiere cancelar
+     * @param hoy         fecha actual
+     * @return solicitud cancelada
      * @throws SolicitudNoExistente en caso de que la solicitud no exista
      * @throws InscripcionCerrada   en caso de que el período de inscripción esté cerrado
      * @brief Cancela una solicitud de inscripción a una actividad
      */
-    public void cancelarSolicitud(Solicitud solicitud) {
-        if (!this.isAbierta())
+    public Solicitud cancelarSolicitud(int idSolicitud, LocalDate hoy) {
+        if (!this.isAbierta(hoy))
             throw new InscripcionCerrada();
 
-        if (solicitud.getSocio() == null)
-            throw new SolicitudNoExistente();
+        Solicitud sol = buscarSolicitudPorId(idSolicitud).orElseThrow(SolicitudNoExistente::new);
+        return cancelarSolicitud(sol, hoy);
+    }
 
-        for (Solicitud sol : solicitudes) {
-            if (sol.getId() == solicitud.getId()) {
-                if (sol.getPlazasAceptadas() == 1) {
-                    plazasOcupadas--;
-                }
-                solicitudes.remove(sol);
-                break;
-            }
+    /**
+     * @param sol solicitud que se quiere cancelar
+     * @param hoy fecha actual
+     * @return solicitud cancelada
+     * @throws SolicitudNoExistente en caso de que la solicitud no sea de esta actividad
+     * @throws InscripcionCerrada   en caso de que el período de inscripción esté cerrado
+     * @brief Cancela una solicitud de inscripción a una actividad
+     * @implNote La solicitud solo se retira de la colección y de los índices si ya estaban cargados,
+     * de modo que cancelar una solicitud gestionada no lee el resto de solicitudes de la actividad.
+     */
+    public Solicitud cancelarSolicitud(Solicitud sol, LocalDate hoy) {
+        if (!this.isAbierta(hoy))
+            throw new InscripcionCerrada();
+
+        comprobarSolicitud(sol);
+        if (sol.getPlazasAceptadas() == 1) {
+            plazasOcupadas--;
         }
+        if (Hibernate.isInitialized(solicitudes))
+            solicitudes.remove(sol);
+        if (solicitudesPorEmail != null)
+            desindexarSolicitud(sol);
+        return sol;
     }
 
     /**
-     * @param solicitud     solicitud a modificar
+     * @param sol           solicitud a modificar
      * @param nAcompanantes número de acompañantes
-     * @throws SolicitudNoExistente en caso de que la solicitud no exista
+     * @param hoy           fecha actual
+     * @throws SolicitudNoExistente en caso de que la solicitud no sea de esta actividad
      * @brief modifica el número de acompañantes que tendrá una solicitud
      */
-    public Solicitud modificarAcompanantes(Solicitud solicitud, int nAcompanantes) {
-        if (!this.isAbierta())
+    public Solicitud modificarAcompanantes(Solicitud sol, int nAcompanantes, LocalDate hoy) {
+        if (!this.isAbierta(hoy))
             throw new InscripcionCerrada();
 
-        for (Solicitud sol : solicitudes) {
-            if (sol.getId() == solicitud.getId()) {
-                sol.modificarAcompanantes(nAcompanantes);
-                return sol;
-            }
-        }
-        throw new SolicitudNoExistente();
+        comprobarSolicitud(sol);
+        sol.modificarAcompanantes(nAcompanantes);
+        return sol;
     }
 
     /**
      * @param solicitud solicitud a la que se le acepta la plaza
+     * @param hoy       fecha actual
+     * @throws SolicitudNoExistente en caso de que la solicitud no sea de esta actividad
      * @brief Acepta una plaza de una solicitud de inscripción a la actividad
      */
-    public Solicitud aceptarPlaza(Solicitud solicitud) {
-        if (isAbierta()) throw new InscripcionAbierta();
+    public Solicitud aceptarPlaza(Solicitud solicitud, LocalDate hoy) {
+        if (isAbierta(hoy)) throw new InscripcionAbierta();
 
         if (plazasOcupadas == plazas)
             throw new NoDisponibilidadPlazas();
 
-        for (Solicitud sol : solicitudes) {
-            if ((sol.getId() == solicitud.getId())) {
-                sol.aceptarPlaza();
-                plazasOcupadas++;
-                return sol;
-            }
+        comprobarSolicitud(solicitud);
+        solicitud.aceptarPlaza();
+        plazasOcupadas++;
+        return solicitud;
+    }
+
+    /**
+     * @param plazasPorSolicitud número de plazas a aceptar a cada solicitud de la actividad
+     * @param hoy                fecha actual
+     * @throws InscripcionAbierta      si el periodo de inscripción sigue abierto
+     * @throws SolicitudNoValida       si a alguna solicitud le falta el número de plazas o se le aceptarían más
+     *                                 plazas que las que pidió
+     * @throws NoDisponibilidadPlazas  si no quedan plazas libres para todas las asignaciones
+     * @brief Acepta varias plazas de varias solicitudes de inscripción a la actividad
+     * @implNote Las plazas se comprueban una sola vez para el total, antes de modificar ninguna solicitud,
+     * de modo que o se aceptan todas las plazas o ninguna.
+     */
+    public void aceptarPlazas(Map<Solicitud, Integer> plazasPorSolicitud, LocalDate hoy) {
+        if (isAbierta(hoy)) throw new InscripcionAbierta();
+
+        int total = 0;
+        for (Map.Entry<Solicitud, Integer> plazasSolicitud : plazasPorSolicitud.entrySet()) {
+            Solicitud sol = plazasSolicitud.getKey();
+            Integer n = plazasSolicitud.getValue();
+            if (n == null || n <= 0 || sol.getPlazasAceptadas() + n > sol.getnAcompanantes() + 1)
+                throw new SolicitudNoValida();
+            total += n;
         }
-        throw new SolicitudNoExistente();
+        if (plazasOcupadas + total > plazas)
+            throw new NoDisponibilidadPlazas();
+
+        plazasPorSolicitud.forEach(Solicitud::aceptarPlazas);
+        plazasOcupadas += total;
+    }
+
+    /**
+     * @param pendientes solicitudes de la actividad a las que les faltan plazas por aceptar
+     * @param hoy        fecha actual
+     * @return solicitudes a las que se ha aceptado alguna plaza
+     * @throws InscripcionAbierta si el periodo de inscripción sigue abierto
+     * @brief Reparte las plazas libres entre la lista de espera al cerrarse la inscripción
+     * @implNote Las solicitudes se atienden en una cola de prioridad por plazas ya aceptadas, fecha e id,
+     * de una plaza en una: primero cada socio sin plaza por orden de solicitud y después, por el mismo orden,
+     * sus acompañantes. Termina cuando se agotan las plazas o la lista de espera.
+     */
+    public List<Solicitud> asignarPlazasListaEspera(Collection<Solicitud> pendientes, LocalDate hoy) {
+        if (isAbierta(hoy)) throw new InscripcionAbierta();
+
+        PriorityQueue<Solicitud> cola = new PriorityQueue<>(Comparator.comparingInt(Solicitud::getPlazasAceptadas)
+                .thenComparing(Solicitud::getFecha, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparingInt(Solicitud::getId));
+        for (Solicitud sol : pendientes) {
+            if (sol.getPlazasAceptadas() <= sol.getnAcompanantes())
+                cola.add(sol);
+        }
+
+        Set<Solicitud> asignadas = new LinkedHashSet<>();
+        while (plazasOcupadas < plazas && !cola.isEmpty()) {
+            Solicitud sol = cola.poll();
+            sol.aceptarPlaza();
+            plazasOcupadas++;
+            asignadas.add(sol);
+            if (sol.getPlazasAceptadas() <= sol.getnAcompanantes())
+                cola.add(sol);
+        }
+        plazasAsignadas = true;
+        return new ArrayList<>(asignadas);
     }
 
     /**
      * @param solicitud solicitud a la que se le acepta la plaza
+     * @param hoy       fecha actual
+     * @throws SolicitudNoExistente en caso de que la solicitud no sea de esta actividad
      * @brief Retira una plaza de una solicitud de inscripción a la actividad
      */
-    public Solicitud quitarPlaza(Solicitud solicitud) {
-        if (isAbierta()) throw new InscripcionAbierta();
-
-        for (Solicitud sol : solicitudes) {
-            if ((sol.getId() == solicitud.getId())) {
-                sol.quitarPlaza();
-                if (plazasOcupadas > 0)
-                    plazasOcupadas--;
-                return sol;
-            }
-        }
-        throw new SolicitudNoExistente();
+    public Solicitud quitarPlaza(Solicitud solicitud, LocalDate hoy) {
+        if (isAbierta(hoy)) throw new InscripcionAbierta();
+
+        comprobarSolicitud(solicitud);
+        solicitud.quitarPlaza();
+        if (plazasOcupadas > 0)
+            plazasOcupadas--;
+        return solicitud;
     }
 
     /**
+     * @param hoy fecha actual
      * @return true si es posible realizar una solicitud, false en caso contrario
      * @brief Comprueba si es posible realizar una solicitud
      */
-    public boolean isAbierta() {
-        if (LocalDate.now().isBefore(fechaInicioInscripcion) || LocalDate.now().isAfter(fechaFinInscripcion))
+    public boolean isAbierta(LocalDate hoy) {
+        if (hoy.isBefore(fechaInicioInscripcion) || hoy.isAfter(fechaFinInscripcion))
             return false;
         return true;
     }
@@ -285,11 +427,7 @@ public class Actividad {
     }
 
     public List<Solicitud> getSolicitudes() {
-        List<Solicitud> listaSolicitudes = new LinkedList<>();
-        for (Solicitud solicitud : solicitudes) {
-            listaSolicitudes.add(solicitud);
-        }
-        return listaSolicitudes;
+        return Collections.unmodifiableList(solicitudes);
     }
 
     @PositiveOrZero
@@ -313,7 +451,15 @@ public class Actividad {
         return plazas;
     }
 
+    public boolean isPlazasAsignadas() {
+        return plazasAsignadas;
+    }
+
     public String getDescripcion() {
         return descripcion;
     }
+
+    public void setTemporada(Temporada temporada) {
+        this.temporada = temporada;
+    }
 }
@@ -1,5 +1,6 @@
 package es.ujaen.dae.clubsocios.entidades;
 
+import es.ujaen.dae.clubsocios.configuracion.IdPorBloques;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
@@ -8,10 +9,15 @@ import jakarta.validation.constraints.PositiveOrZero;
 import java.time.LocalDate;
 
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = Solicitud.UK_ACTIVIDAD_SOCIO, columnNames = {"actividad", "socio_email"}),
+        indexes = @Index(name = "idx_solicitud_actividad", columnList = "actividad, id"))
 public class Solicitud {
+    // Restricción que impide que un socio tenga más de una solicitud en la misma actividad
+    public static final String UK_ACTIVIDAD_SOCIO = "uk_solicitud_actividad_socio";
+
     @Id
     @PositiveOrZero
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @IdPorBloques(entidad = "solicitud")
     private int id;
     @Min(0)
     @Max(5)
@@ -21,13 +27,16 @@ public class Solicitud {
     private int plazasAceptadas;
     @ManyToOne
     Socio socio;
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "actividad")
+    Actividad actividad;
 
     /**
      * @brief Constructor por defecto de la clase solicitud
      */
     public Solicitud() {
         this.nAcompanantes = 0;
-        this.fecha = LocalDate.now();
+        this.fecha = null;
         this.plazasAceptadas = 0;
         this.socio = null;
     }
@@ -43,10 +52,11 @@ public class Solicitud {
     /**
      * @param nAcompanantes numero de acompañantes
      * @param socio         Socio que realiza la solicitud
+     * @param fecha         fecha en la que se realiza la solicitud
      * @brief Constructor parametrizado
      */
-    public Solicitud(Socio socio, int nAcompanantes) {
-        this(0, socio, nAcompanantes, LocalDate.now(), 0);
+    public Solicitud(Socio socio, int nAcompanantes, LocalDate fecha) {
+        this(0, socio, nAcompanantes, fecha, 0);
     }
 
     /**
@@ -61,6 +71,18 @@ public class Solicitud {
         return socio;
     }
 
+    public void setSocio(Socio socio) {
+        this.socio = socio;
+    }
+
+    public Actividad getActividad() {
+        return actividad;
+    }
+
+    public void setActividad(Actividad actividad) {
+        this.actividad = actividad;
+    }
+
     @Min(0)
     @Max(5)
     public int getnAcompanantes() {
@@ -91,6 +113,14 @@ public class Solicitud {
         }
     }
 
+    /**
+     * @param n número de plazas a aceptar
+     * @brief Acepta varias plazas de la solicitud; quien llama comprueba que no superen las solicitadas
+     */
+    public void aceptarPlazas(int n) {
+        this.plazasAceptadas += n;
+    }
+
     public void quitarPlaza() {
         if (this.plazasAceptadas > 0) {
             this.plazasAceptadas--;
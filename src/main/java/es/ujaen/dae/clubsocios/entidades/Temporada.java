@@ -1,25 +1,27 @@
 package es.ujaen.dae.clubsocios.entidades;
 
+import es.ujaen.dae.clubsocios.configuracion.ConfiguracionCache;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
-import java.time.LocalDate;
 import java.util.LinkedList;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ConfiguracionCache.TEMPORADAS)
 public class Temporada {
     @Id
     private int anio;
 
-    @OneToMany(fetch = FetchType.EAGER)
-    @JoinColumn
+    @OneToMany(mappedBy = "temporada")
     List<Actividad> actividades;
 
     /**
      * @brief Constructor por defecto de la clase Temporada
      */
     public Temporada() {
-        this.anio = LocalDate.now().getYear();
     }
 
     /**
@@ -37,6 +39,7 @@ public class Temporada {
      */
     public void nuevaActividad(Actividad actividad) {
         actividad.fechasValidas();
+        actividad.setTemporada(this);
         actividades.add(actividad);
     }
 
@@ -0,0 +1,7 @@
+package es.ujaen.dae.clubsocios.excepciones;
+
+public class ExportacionCaducada extends RuntimeException {
+    public ExportacionCaducada() {
+        super("La exportación ha superado el tiempo máximo");
+    }
+}
@@ -0,0 +1,97 @@
+package es.ujaen.dae.clubsocios.metricas;
+
+import es.ujaen.dae.clubsocios.configuracion.ConfiguracionCache;
+import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.servicios.ActividadesAbiertas;
+import es.ujaen.dae.clubsocios.servicios.IndiceSocios;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.cache.CacheManager;
+import java.util.List;
+
+@Component
+public class MetricasClub {
+
+    @Autowired
+    MeterRegistry registro;
+    @Autowired
+    ActividadesAbiertas actividadesAbiertas;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    IndiceSocios indiceSocios;
+    @Autowired
+    CacheManager gestorCacheEntidades;
+
+    private MultiGauge plazasOcupadas;
+    private MultiGauge plazasLibres;
+
+    /**
+     * @brief Registra las métricas de plazas de las actividades abiertas, del índice de socios y de la caché de segundo nivel
+     * @implNote Los aciertos y fallos de cada región de la caché (cache_gets) se leen de las estadísticas de
+     * las cachés Caffeine, que están siempre activas. Las consultas los publica HibernateMetrics, y la tasa de
+     * aciertos ya calculada solo se añade si las estadísticas de Hibernate están activadas.
+     */
+    @PostConstruct
+    void registrar() {
+        plazasOcupadas = MultiGauge.builder("club.actividad.plazas.ocupadas")
+                .description("Plazas ocupadas de cada actividad abierta")
+                .register(registro);
+        plazasLibres = MultiGauge.builder("club.actividad.plazas.libres")
+                .description("Plazas libres de cada actividad abierta")
+                .register(registro);
+
+        Gauge.builder("club.indice.socios.construido", indiceSocios, i -> i.isConstruido() ? 1 : 0)
+                .description("1 si el índice de socios está construido y responde las búsquedas, 0 si se usa la base de datos")
+                .register(registro);
+        FunctionCounter.builder("club.indice.socios.fallos", indiceSocios, IndiceSocios::getFallosConstruccion)
+                .description("Intentos fallidos de construir el índice de socios")
+                .register(registro);
+
+        for (String region : List.of(ConfiguracionCache.SOCIOS, ConfiguracionCache.TEMPORADAS))
+            JCacheMetrics.monitor(registro, gestorCacheEntidades.getCache(region));
+
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        if (estadisticas.isStatisticsEnabled())
+            Gauge.builder("club.cache.segundo.nivel.aciertos", estadisticas, MetricasClub::tasaAciertos)
+                    .description("Proporción de accesos a la caché de segundo nivel que encuentran la entidad")
+                    .register(registro);
+
+        actualizarPlazas();
+    }
+
+    /**
+     * @brief Actualiza las plazas ocupadas y libres de las actividades abiertas
+     * @implNote Se leen de la instantánea de actividades abiertas, por lo que normalmente no consulta
+     * la base de datos; las actividades que se cierran dejan de publicarse. La instantánea se lee
+     * directamente, sin pasar por ServicioClub, para no sumar estas lecturas a club.operaciones.
+     */
+    @Scheduled(fixedDelayString = "${clubsocios.metricas.intervalo-plazas:PT30S}")
+    public void actualizarPlazas() {
+        List<Actividad> actividades = actividadesAbiertas.buscar();
+        plazasOcupadas.register(actividades.stream()
+                .<MultiGauge.Row<?>>map(a -> MultiGauge.Row.of(Tags.of("actividad", String.valueOf(a.getId())), a.getPlazasOcupadas()))
+                .toList(), true);
+        plazasLibres.register(actividades.stream()
+                .<MultiGauge.Row<?>>map(a -> MultiGauge.Row.of(Tags.of("actividad", String.valueOf(a.getId())), a.getPlazas() - a.getPlazasOcupadas()))
+                .toList(), true);
+    }
+
+    private static double tasaAciertos(Statistics estadisticas) {
+        long aciertos = estadisticas.getSecondLevelCacheHitCount();
+        long accesos = aciertos + estadisticas.getSecondLevelCacheMissCount();
+        return accesos == 0 ? Double.NaN : (double) aciertos / accesos;
+    }
+}
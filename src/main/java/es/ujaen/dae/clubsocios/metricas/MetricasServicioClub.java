@@ -0,0 +1,51 @@
+package es.ujaen.dae.clubsocios.metricas;
+
+import es.ujaen.dae.clubsocios.excepciones.ActividadNoRegistrada;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Aspect
+@Component
+public class MetricasServicioClub {
+
+    // Nombre del temporizador de las operaciones de ServicioClub
+    public static final String OPERACIONES = "club.operaciones";
+
+    @Autowired
+    MeterRegistry registro;
+
+    /**
+     * @param operacion llamada a un método público de ServicioClub
+     * @return resultado de la operación
+     * @brief Mide el tiempo de cada operación de ServicioClub, etiquetado con la operación y su resultado
+     * @implNote El resultado es "ok", el nombre de la excepción de dominio lanzada o "error" para cualquier
+     * otra excepción, de modo que el número de series no crece con excepciones inesperadas. El número de
+     * llamadas de cada serie lo da el propio temporizador.
+     */
+    @Around("execution(public * es.ujaen.dae.clubsocios.servicios.ServicioClub.*(..))")
+    public Object medir(ProceedingJoinPoint operacion) throws Throwable {
+        Timer.Sample muestra = Timer.start(registro);
+        String resultado = "ok";
+        try {
+            return operacion.proceed();
+        } catch (Throwable e) {
+            resultado = resultado(e);
+            throw e;
+        } finally {
+            muestra.stop(Timer.builder(OPERACIONES)
+                    .description("Operaciones de ServicioClub")
+                    .tag("operacion", operacion.getSignature().getName())
+                    .tag("resultado", resultado)
+                    .register(registro));
+        }
+    }
+
+    private static String resultado(Throwable e) {
+        return e.getClass().getPackage() == ActividadNoRegistrada.class.getPackage() ? e.getClass().getSimpleName() : "error";
+    }
+}
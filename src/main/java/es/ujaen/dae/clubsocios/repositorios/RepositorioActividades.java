@@ -1,16 +1,30 @@
 package es.ujaen.dae.clubsocios.repositorios;
 
 import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.entidades.Socio;
 import es.ujaen.dae.clubsocios.entidades.Solicitud;
 import es.ujaen.dae.clubsocios.excepciones.NoHayActividades;
+import es.ujaen.dae.clubsocios.excepciones.SolicitudYaRealizada;
+import es.ujaen.dae.clubsocios.rest.dto.DTOActividad;
+import es.ujaen.dae.clubsocios.rest.dto.DTOSolicitud;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Transactional
 @Repository
@@ -19,6 +33,11 @@ public class RepositorioActividades {
     @PersistenceContext
     EntityManager em;
 
+    // Solicitudes que se escriben y se liberan de memoria de una vez en la importación (hibernate.jdbc.batch_size)
+    private static final int TAM_LOTE_IMPORTACION = 50;
+    // Filas que se piden a la base de datos en cada viaje, y tras las que se vacía el contexto, en la exportación
+    private static final int TAM_LOTE_EXPORTACION = 500;
+
     /**
      * @param actividad actividad a crear
      * @brief Crea una nueva actividad
@@ -29,18 +48,186 @@ public class RepositorioActividades {
         return actividad;
     }
 
+    @Transactional(readOnly = true)
     public List<Integer> listadoIds() {
         return em.createQuery("select h.id from Actividad h").getResultList();
     }
 
     /**
+     * @param hoy fecha actual
      * @return lista de todas las actividades abiertas
      * @throws NoHayActividades si no hay actividades abiertas
      * @brief Devuelve una lista con todas las actividades a las que es posible inscribirse
+     * @implNote Las actividades se cargan como solo lectura, sin copia para detectar cambios.
      */
-    public List<Actividad> buscaTodasActividadesAbiertas() {
+    @Transactional(readOnly = true)
+    public List<Actividad> buscaTodasActividadesAbiertas(LocalDate hoy) {
         return em.createQuery("SELECT a FROM Actividad a WHERE a.fechaInicioInscripcion <= :fechaActual AND a.fechaFinInscripcion>:fechaActual", Actividad.class)
-                .setParameter("fechaActual", LocalDate.now()).getResultList();
+                .setParameter("fechaActual", hoy)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    /**
+     * @param hoy fecha actual
+     * @return copias de las actividades abiertas, ordenadas por id
+     * @brief Devuelve las actividades a las que es posible inscribirse como objetos no gestionados
+     * @implNote Las copias no pertenecen a ningún contexto de persistencia, por lo que pueden
+     * compartirse entre hilos; no incluyen las solicitudes de la actividad. No se marca como de solo lectura
+     * para que, con una réplica configurada, la instantánea se reconstruya siempre desde la base de datos principal.
+     */
+    public List<Actividad> buscarCopiasActividadesAbiertas(LocalDate hoy) {
+        return em.createQuery("SELECT new es.ujaen.dae.clubsocios.entidades.Actividad(a.id, a.titulo, a.descripcion, a.precio, a.plazas, a.plazasOcupadas, " +
+                        "a.fechaInicioInscripcion, a.fechaFinInscripcion, a.fechaCelebracion) " +
+                        "FROM Actividad a WHERE a.fechaInicioInscripcion <= :fechaActual AND a.fechaFinInscripcion > :fechaActual ORDER BY a.id", Actividad.class)
+                .setParameter("fechaActual", hoy).getResultList();
+    }
+
+    /**
+     * @param anio      año de la temporada
+     * @param despues   id de la última actividad de la página anterior (0 para la primera página)
+     * @param tamPagina número máximo de actividades a devolver
+     * @return página de actividades de la temporada ordenadas por id
+     * @brief Busca una página de las actividades de una temporada
+     * @implNote Las actividades se cargan como solo lectura, sin copia para detectar cambios.
+     */
+    @Transactional(readOnly = true)
+    public List<Actividad> buscarActividadesTemporada(int anio, int despues, int tamPagina) {
+        return em.createQuery("SELECT a FROM Actividad a WHERE a.temporada.anio = :anio AND a.id > :despues ORDER BY a.id", Actividad.class)
+                .setParameter("anio", anio)
+                .setParameter("despues", despues)
+                .setMaxResults(tamPagina)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    /**
+     * @param anio      año de la temporada
+     * @param despues   id de la última actividad de la página anterior (0 para la primera página)
+     * @param tamPagina número máximo de actividades a devolver
+     * @return página de las actividades de la temporada ordenadas por id, como DTOs
+     * @brief Busca una página de las actividades de una temporada para listarlas
+     * @implNote Los DTOs se construyen directamente desde las columnas, sin entidades que registrar en el
+     * contexto de persistencia. El año es la propia clave ajena de la actividad, así que no se une la temporada.
+     */
+    @Transactional(readOnly = true)
+    public List<DTOActividad> listarActividadesTemporada(int anio, int despues, int tamPagina) {
+        return em.createQuery("SELECT new es.ujaen.dae.clubsocios.rest.dto.DTOActividad(a.id, a.titulo, a.descripcion, a.precio, a.plazas, a.plazasOcupadas, " +
+                        "a.fechaInicioInscripcion, a.fechaFinInscripcion, a.fechaCelebracion) " +
+                        "FROM Actividad a WHERE a.temporada.anio = :anio AND a.id > :despues ORDER BY a.id", DTOActividad.class)
+                .setParameter("anio", anio)
+                .setParameter("despues", despues)
+                .setMaxResults(tamPagina)
+                .getResultList();
+    }
+
+    /**
+     * @param idActividad id de la actividad
+     * @param despues     id de la última solicitud de la página anterior (0 para la primera página)
+     * @param tamPagina   número máximo de solicitudes a devolver
+     * @return página de solicitudes de la actividad ordenadas por id
+     * @brief Busca una página de las solicitudes de una actividad
+     * @implNote Las solicitudes se cargan como solo lectura, sin copia para detectar cambios, y junto con
+     * sus socios en la misma consulta, en lugar de una consulta por socio.
+     */
+    @Transactional(readOnly = true)
+    public List<Solicitud> buscarSolicitudes(int idActividad, int despues, int tamPagina) {
+        return em.createQuery("SELECT s FROM Solicitud s JOIN FETCH s.socio WHERE s.actividad.id = :actividad AND s.id > :despues ORDER BY s.id", Solicitud.class)
+                .setParameter("actividad", idActividad)
+                .setParameter("despues", despues)
+                .setMaxResults(tamPagina)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    /**
+     * @param idActividad id de la actividad
+     * @param despues     id de la última solicitud de la página anterior (0 para la primera página)
+     * @param tamPagina   número máximo de solicitudes a devolver
+     * @return página de las solicitudes de la actividad ordenadas por id, como DTOs
+     * @brief Busca una página de las solicitudes de una actividad para listarlas
+     * @implNote Lee solo las columnas de solicitud, sin crear entidades ni cargar los socios: el email
+     * del socio es la propia clave ajena.
+     */
+    @Transactional(readOnly = true)
+    public List<DTOSolicitud> listarSolicitudes(int idActividad, int despues, int tamPagina) {
+        return em.createQuery("SELECT new es.ujaen.dae.clubsocios.rest.dto.DTOSolicitud(s.id, s.nAcompanantes, s.fecha, s.plazasAceptadas, s.socio.email) " +
+                        "FROM Solicitud s WHERE s.actividad.id = :actividad AND s.id > :despues ORDER BY s.id", DTOSolicitud.class)
+                .setParameter("actividad", idActividad)
+                .setParameter("despues", despues)
+                .setMaxResults(tamPagina)
+                .getResultList();
+    }
+
+    /**
+     * @param idActividad id de la actividad
+     * @param ids         ids de las solicitudes
+     * @return solicitudes de la actividad con los ids dados, junto con sus socios
+     * @brief Busca varias solicitudes de una actividad en una sola consulta
+     */
+    public List<Solicitud> buscarSolicitudes(int idActividad, Collection<Integer> ids) {
+        return em.createQuery("SELECT s FROM Solicitud s JOIN FETCH s.socio WHERE s.actividad.id = :actividad AND s.id IN :ids", Solicitud.class)
+                .setParameter("actividad", idActividad)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    /**
+     * @param anio   año de la temporada
+     * @param accion operación que se aplica a cada solicitud, con su actividad y su socio, en orden de actividad
+     * @brief Recorre las solicitudes de todas las actividades de una temporada sin tenerlas a la vez en memoria
+     * @implNote Las solicitudes se leen de un cursor de la base de datos, de TAM_LOTE_EXPORTACION en
+     * TAM_LOTE_EXPORTACION, y el contexto de persistencia se vacía tras cada lote; tampoco pasan por la caché
+     * de segundo nivel. La acción no debe guardar las solicitudes, que quedan desligadas al vaciar el contexto.
+     */
+    @Transactional(readOnly = true)
+    public void recorrerSolicitudesTemporada(int anio, Consumer<Solicitud> accion) {
+        Session sesion = em.unwrap(Session.class);
+        CacheMode modoCache = sesion.getCacheMode();
+        //El modo de caché de la consulta solo se aplica al abrir el cursor, no a las filas que se leen después
+        sesion.setCacheMode(CacheMode.IGNORE);
+        try (Stream<Solicitud> solicitudes = em.createQuery("SELECT s FROM Solicitud s JOIN FETCH s.actividad a JOIN FETCH s.socio " +
+                        "WHERE a.temporada.anio = :anio ORDER BY a.id, s.id", Solicitud.class)
+                .setParameter("anio", anio)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, TAM_LOTE_EXPORTACION)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            int leidas = 0;
+            for (Iterator<Solicitud> it = solicitudes.iterator(); it.hasNext(); ) {
+                accion.accept(it.next());
+                if (++leidas % TAM_LOTE_EXPORTACION == 0)
+                    em.clear();
+            }
+        } finally {
+            sesion.setCacheMode(modoCache);
+        }
+    }
+
+    /**
+     * @param hoy       fecha actual
+     * @param despues   id de la última actividad del lote anterior (0 para el primer lote)
+     * @param tamLote   número máximo de ids a devolver
+     * @return ids de las actividades con la inscripción cerrada cuyas plazas aún no se han asignado, ordenados
+     * @brief Busca un lote de actividades pendientes de la asignación automática de plazas
+     */
+    @Transactional(readOnly = true)
+    public List<Integer> buscarActividadesPendientesDeAsignar(LocalDate hoy, int despues, int tamLote) {
+        return em.createQuery("SELECT a.id FROM Actividad a WHERE a.plazasAsignadas = false AND a.fechaFinInscripcion < :fechaActual AND a.id > :despues ORDER BY a.id", Integer.class)
+                .setParameter("fechaActual", hoy)
+                .setParameter("despues", despues)
+                .setMaxResults(tamLote)
+                .getResultList();
+    }
+
+    /**
+     * @param idActividad id de la actividad
+     * @return solicitudes de la actividad con menos plazas aceptadas que las solicitadas, junto con sus socios
+     * @brief Busca la lista de espera de una actividad
+     */
+    public List<Solicitud> buscarSolicitudesPendientes(int idActividad) {
+        return em.createQuery("SELECT s FROM Solicitud s JOIN FETCH s.socio WHERE s.actividad.id = :actividad AND s.plazasAceptadas <= s.nAcompanantes", Solicitud.class)
+                .setParameter("actividad", idActividad)
+                .getResultList();
     }
 
     /**
@@ -48,28 +235,118 @@ public class RepositorioActividades {
      * @return optional la actividad con el id dado
      * @brief Busca una actividad por su id
      */
+    @Transactional(readOnly = true)
     public Optional<Actividad> buscarPorId(int id) {
         return Optional.ofNullable(em.find(Actividad.class, id));
     }
 
-    public Actividad actualizar(Actividad actividad) {
-        return em.merge(actividad);
+    /**
+     * @param id id de la actividad
+     * @return optional la actividad con el id dado
+     * @brief Busca una actividad por su id bloqueando su fila hasta el final de la transacción
+     * @implNote Se usa en las operaciones que modifican las plazas ocupadas a través de la entidad,
+     * para que no se pierdan actualizaciones concurrentes.
+     */
+    public Optional<Actividad> buscarPorIdParaActualizar(int id) {
+        return Optional.ofNullable(em.find(Actividad.class, id, LockModeType.PESSIMISTIC_WRITE));
     }
 
-    public Solicitud actualizarSolicitud(Solicitud solicitud) {
-        return em.merge(solicitud);
+    /**
+     * @param idActividad id de la actividad
+     * @param idSolicitud id de la solicitud
+     * @return optional la solicitud de la actividad, junto con su actividad y su socio
+     * @brief Busca una solicitud de una actividad sin cargar el resto de sus solicitudes
+     * @implNote La solicitud devuelta está gestionada, de modo que sus cambios se escriben al confirmar
+     * la transacción sin necesidad de volver a guardarla.
+     */
+    public Optional<Solicitud> buscarSolicitud(int idActividad, int idSolicitud) {
+        return em.createQuery("SELECT s FROM Solicitud s JOIN FETCH s.actividad JOIN FETCH s.socio WHERE s.id = :id AND s.actividad.id = :actividad", Solicitud.class)
+                .setParameter("id", idSolicitud)
+                .setParameter("actividad", idActividad)
+                .getResultStream().findFirst();
+    }
+
+    /**
+     * @param idActividad id de la actividad
+     * @param idSolicitud id de la solicitud
+     * @return optional la solicitud de la actividad, junto con su actividad y su socio
+     * @brief Busca una solicitud de una actividad bloqueando su fila y la de la actividad hasta el final de la transacción
+     * @implNote Se usa en las operaciones sobre una única solicitud que modifican las plazas ocupadas,
+     * en lugar de buscarPorIdParaActualizar, ya que una sola consulta bloquea y carga ambas entidades.
+     * El socio no se une a la consulta, para no bloquear también su fila: se carga aparte, sin bloqueo
+     * (normalmente desde la caché de segundo nivel).
+     */
+    public Optional<Solicitud> buscarSolicitudParaActualizar(int idActividad, int idSolicitud) {
+        return em.createQuery("SELECT s FROM Solicitud s JOIN FETCH s.actividad WHERE s.id = :id AND s.actividad.id = :actividad", Solicitud.class)
+                .setParameter("id", idSolicitud)
+                .setParameter("actividad", idActividad)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultStream().findFirst();
     }
 
     public void comprobarErrores() {
         em.flush();
     }
 
-    public void guardarSolicitud(Solicitud solicitud) {
-        em.persist(solicitud);
+    /**
+     * @param actividad actividad a la que pertenece la solicitud
+     * @param solicitud solicitud a guardar
+     * @throws SolicitudYaRealizada si el socio ya tiene una solicitud en la actividad
+     * @brief Guarda una solicitud de la actividad sin cargar el resto de sus solicitudes
+     */
+    public void guardarSolicitud(Actividad actividad, Solicitud solicitud) {
+        solicitud.setActividad(actividad);
+        try {
+            em.persist(solicitud);
+            em.flush();
+        } catch (ConstraintViolationException e) {
+            throw esSolicitudRepetida(e) ? new SolicitudYaRealizada() : e;
+        }
+    }
+
+    /**
+     * @param solicitudes solicitudes a guardar, cada una con su actividad y su socio ya asignados
+     * @throws SolicitudYaRealizada si algún socio ya tiene una solicitud en la misma actividad; si algún socio o
+     * actividad no existe, se propaga la violación de la clave ajena
+     * @brief Guarda de una vez muchas solicitudes, por ejemplo al importar las de otra temporada
+     * @implNote Las inserciones se agrupan en lotes JDBC gracias a los ids reservados en bloques, y el contexto
+     * de persistencia se vacía tras cada lote para que la memoria no crezca con el número de solicitudes; por
+     * eso debe ejecutarse en su propia transacción. El socio y la actividad de cada solicitud se sustituyen por
+     * referencias, para que Hibernate no los consulte uno a uno. No comprueba las fechas de inscripción
+     * ni recalcula las plazas ocupadas de las actividades.
+     */
+    public void guardarSolicitudes(List<Solicitud> solicitudes) {
+        try {
+            for (int i = 0; i < solicitudes.size(); i++) {
+                Solicitud solicitud = solicitudes.get(i);
+                solicitud.setSocio(em.getReference(Socio.class, solicitud.getSocio().getEmail()));
+                solicitud.setActividad(em.getReference(Actividad.class, solicitud.getActividad().getId()));
+                em.persist(solicitud);
+                if ((i + 1) % TAM_LOTE_IMPORTACION == 0) {
+                    em.flush();
+                    em.clear();
+                }
+            }
+            em.flush();
+        } catch (ConstraintViolationException e) {
+            throw esSolicitudRepetida(e) ? new SolicitudYaRealizada() : e;
+        }
+    }
+
+    /**
+     * @param e violación de una restricción al guardar solicitudes
+     * @return true si es la de una solicitud repetida, false si es otra (por ejemplo, un socio o una actividad que no existen)
+     */
+    private static boolean esSolicitudRepetida(ConstraintViolationException e) {
+        return e.getConstraintName() != null && e.getConstraintName().toLowerCase(Locale.ROOT).contains(Solicitud.UK_ACTIVIDAD_SOCIO);
     }
 
+    /**
+     * @param solicitud solicitud gestionada a borrar
+     * @brief Borra una solicitud obtenida en la transacción en curso
+     */
     public void borrarSolicitud(Solicitud solicitud) {
-        em.remove(em.merge(solicitud));
+        em.remove(solicitud);
     }
 
     public void modificarFechaActividad(Actividad actividad) {
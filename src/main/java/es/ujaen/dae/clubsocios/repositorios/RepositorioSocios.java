@@ -4,11 +4,18 @@ import es.ujaen.dae.clubsocios.entidades.Socio;
 import es.ujaen.dae.clubsocios.excepciones.SocioYaRegistrado;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Repository
 @Transactional
@@ -16,6 +23,10 @@ public class RepositorioSocios {
     @PersistenceContext
     EntityManager em;
 
+    // Filas que se piden a la base de datos en cada viaje, y tras las que se vacía el contexto, al recorrer todos los socios
+    private static final int TAM_LOTE_RECORRIDO = 500;
+
+    @Transactional(readOnly = true)
     public Optional<Socio> buscar(String email) {
         return Optional.ofNullable(em.find(Socio.class, email));
     }
@@ -29,19 +40,87 @@ public class RepositorioSocios {
     /**
      * @return lista de todos los socios
      * @brief Busca todos los socios
+     * @implNote Los socios se cargan como solo lectura, sin copia para detectar cambios.
      */
+    @Transactional(readOnly = true)
     public List<Socio> buscarTodos() {
-        return em.createQuery("SELECT s FROM Socio s", Socio.class).getResultList();
+        return em.createQuery("SELECT s FROM Socio s", Socio.class)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    /**
+     * @param accion operación que se aplica a cada socio, en orden de email
+     * @brief Recorre todos los socios sin tenerlos a la vez en memoria
+     * @implNote Los socios se leen de un cursor de la base de datos, de TAM_LOTE_RECORRIDO en TAM_LOTE_RECORRIDO,
+     * y el contexto de persistencia se vacía tras cada lote; tampoco pasan por la caché de segundo nivel.
+     * La acción no debe guardar los socios, que quedan desligados al vaciar el contexto.
+     */
+    @Transactional(readOnly = true)
+    public void recorrerTodos(Consumer<Socio> accion) {
+        Session sesion = em.unwrap(Session.class);
+        CacheMode modoCache = sesion.getCacheMode();
+        //El modo de caché de la consulta solo se aplica al abrir el cursor, no a las filas que se leen después
+        sesion.setCacheMode(CacheMode.IGNORE);
+        try (Stream<Socio> socios = em.createQuery("SELECT s FROM Socio s ORDER BY s.email", Socio.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, TAM_LOTE_RECORRIDO)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            int leidos = 0;
+            for (Iterator<Socio> it = socios.iterator(); it.hasNext(); ) {
+                accion.accept(it.next());
+                if (++leidos % TAM_LOTE_RECORRIDO == 0)
+                    em.clear();
+            }
+        } finally {
+            sesion.setCacheMode(modoCache);
+        }
+    }
+
+    /**
+     * @param despues   email del último socio de la página anterior ("" para la primera página)
+     * @param tamPagina número máximo de socios a devolver
+     * @return página de socios ordenados por email
+     * @brief Busca una página de todos los socios
+     */
+    @Transactional(readOnly = true)
+    public List<Socio> buscarPagina(String despues, int tamPagina) {
+        return em.createQuery("SELECT s FROM Socio s WHERE s.email > :despues ORDER BY s.email", Socio.class)
+                .setParameter("despues", despues)
+                .setMaxResults(tamPagina)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
+    }
+
+    /**
+     * @param prefijo   comienzo del email, del nombre, de los apellidos o de alguna de sus palabras
+     * @param tamPagina número máximo de socios a devolver
+     * @return primeros socios encontrados, ordenados por email
+     * @brief Busca los socios por prefijo en la base de datos
+     * @implNote Es la búsqueda de respaldo mientras no está construido el índice en memoria; no distingue
+     * mayúsculas, y tampoco tildes si lo hace la intercalación de la base de datos.
+     */
+    @Transactional(readOnly = true)
+    public List<Socio> buscarPorPrefijo(String prefijo, int tamPagina) {
+        String patron = prefijo.trim().toLowerCase(Locale.ROOT).replaceAll("([!%_])", "!$1");
+        return em.createQuery("SELECT s FROM Socio s WHERE LOWER(s.email) LIKE :prefijo ESCAPE '!' " +
+                        "OR LOWER(CONCAT(s.nombre, ' ', s.apellidos)) LIKE :prefijo ESCAPE '!' OR LOWER(s.apellidos) LIKE :prefijo ESCAPE '!' " +
+                        "OR LOWER(CONCAT(s.nombre, ' ', s.apellidos)) LIKE :palabra ESCAPE '!' ORDER BY s.email", Socio.class)
+                .setParameter("prefijo", patron + "%")
+                .setParameter("palabra", "% " + patron + "%")
+                .setMaxResults(tamPagina)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
     }
 
     /**
      * @brief Marca todas las cuotas como no pagadas
+     * @implNote Se hace con una única actualización masiva, sin cargar los socios. Hibernate invalida
+     * la región de socios de la caché de segundo nivel al ejecutarla.
      */
     public void marcarTodasCuotasNoPagadas() {
-        List<Socio> socios = buscarTodos();
-        for (Socio socio : socios) {
-            socio.setCuotaPagada(false);
-        }
+        em.createQuery("UPDATE Socio s SET s.cuotaPagada = false WHERE s.cuotaPagada = true")
+                .executeUpdate();
     }
 
     public void marcarCuotaPagada(Socio socio) {
@@ -3,10 +3,10 @@ package es.ujaen.dae.clubsocios.repositorios;
 import es.ujaen.dae.clubsocios.entidades.Temporada;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,6 +27,7 @@ public class RepositorioTemporadas {
         }
     }
 
+    @Transactional(readOnly = true)
     public Optional<Temporada> buscar(int anio) {
         return Optional.ofNullable(em.find(Temporada.class, anio));
     }
@@ -34,14 +35,23 @@ public class RepositorioTemporadas {
     /**
      * @return lista de todas las temporadas
      * @brief Busca todas las temporadas
+     * @implNote Las temporadas se cargan como solo lectura, sin copia para detectar cambios.
      */
+    @Transactional(readOnly = true)
     public List<Temporada> buscarTodasTemporadas() {
-        return em.createQuery("SELECT t FROM Temporada t", Temporada.class).
-                getResultList();
+        return em.createQuery("SELECT t FROM Temporada t", Temporada.class)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultList();
     }
 
-    public Temporada temporadaActual() {
-        return buscar(LocalDate.now().getYear()).get();
+    /**
+     * @return lista con el año de todas las temporadas
+     * @brief Busca los años de todas las temporadas sin cargar las temporadas
+     */
+    @Transactional(readOnly = true)
+    public List<Integer> buscarAniosTemporadas() {
+        return em.createQuery("SELECT t.anio FROM Temporada t ORDER BY t.anio", Integer.class)
+                .getResultList();
     }
 
     public Temporada actualizar(Temporada temporada) {
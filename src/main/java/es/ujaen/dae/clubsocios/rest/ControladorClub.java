@@ -1,33 +1,56 @@
 package es.ujaen.dae.clubsocios.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import es.ujaen.dae.clubsocios.rest.dto.DTOActividad;
 import es.ujaen.dae.clubsocios.rest.dto.DTOSocio;
 import es.ujaen.dae.clubsocios.rest.dto.DTOTemporada;
 import es.ujaen.dae.clubsocios.rest.dto.Mapeador;
-import es.ujaen.dae.clubsocios.entidades.Actividad;
 import es.ujaen.dae.clubsocios.entidades.Socio;
-import es.ujaen.dae.clubsocios.entidades.Solicitud;
 import es.ujaen.dae.clubsocios.excepciones.*;
 import es.ujaen.dae.clubsocios.rest.dto.*;
+import es.ujaen.dae.clubsocios.servicios.Calendario;
 import es.ujaen.dae.clubsocios.servicios.ServicioClub;
 import jakarta.annotation.PostConstruct;
 import jakarta.validation.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.time.LocalDate;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.RecordComponent;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
 
 
 @RestController
 @RequestMapping("/club")
 public class ControladorClub {
+    // Tamaño de página por defecto y máximo de los listados paginados
+    static final int TAM_PAGINA = 50;
+    static final int TAM_PAGINA_MAXIMO = 500;
+
+    static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
     @Autowired
     Mapeador mapeador;
     @Autowired
     ServicioClub servicioClub;
+    @Autowired
+    ObjectMapper objectMapper;
+    @Autowired
+    Calendario calendario;
 
     Socio admin;
 
@@ -52,6 +75,12 @@ public class ControladorClub {
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
 
+    @GetMapping("/socios")
+    public ResponseEntity<List<DTOSocio>> buscarSocios(@RequestParam(defaultValue = "") String q,
+                                                       @RequestParam(defaultValue = "" + TAM_PAGINA) int tam) {
+        return ResponseEntity.ok(servicioClub.buscarSocios(admin, q, tamPagina(tam)).stream().map(s -> mapeador.dto(s)).toList());
+    }
+
     @GetMapping("/socios/{email}")
     public ResponseEntity<DTOSocio> obtenerSocio(@PathVariable String email) {
         try {
@@ -64,7 +93,7 @@ public class ControladorClub {
 
     @GetMapping("/temporadas")
     public ResponseEntity<List<DTOTemporada>> obtenerTemporadas() {
-        return ResponseEntity.ok(servicioClub.buscarTodasTemporadas().stream().map(t -> new DTOTemporada(t.getAnio())).toList());
+        return ResponseEntity.ok(servicioClub.buscarAniosTemporadas().stream().map(DTOTemporada::new).toList());
     }
 
     @PostMapping("/actividades")
@@ -74,21 +103,28 @@ public class ControladorClub {
     }
 
     @GetMapping("/actividades")
-    public ResponseEntity<List<DTOActividad>> obtenerActividadesPorTemporada(@RequestParam int anio) {
-        List<Actividad> actividades;
-        actividades = servicioClub.buscarActividadesTemporada(anio);
-        return ResponseEntity.ok(actividades.stream().map(a -> mapeador.dtoActividad(a)).toList());
+    public ResponseEntity<List<DTOActividad>> obtenerActividadesPorTemporada(@RequestParam int anio,
+                                                                             @RequestParam(defaultValue = "0") int despues,
+                                                                             @RequestParam(defaultValue = "" + TAM_PAGINA) int tam) {
+        return pagina(servicioClub.listarActividadesTemporada(anio, despues, tamPagina(tam)), tamPagina(tam), DTOActividad::id);
+    }
+
+    @GetMapping(value = "/actividades", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamActividadesPorTemporada(@RequestParam int anio) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(streamPaginado(
+                        servicioClub.listarActividadesTemporada(anio, 0, TAM_PAGINA_MAXIMO),
+                        despues -> servicioClub.listarActividadesTemporada(anio, despues, TAM_PAGINA_MAXIMO),
+                        DTOActividad::id));
     }
 
     @PostMapping("/actividades/{id}/solicitudes")
     public ResponseEntity<DTOSolicitud> nuevaSolicitud(@PathVariable int id, @RequestBody DTOSolicitud solicitud) {
         try {
-            Actividad actividad = servicioClub.buscarActividadPorId(id).orElseThrow(ActividadNoRegistrada::new);
-            Socio socio = servicioClub.buscarSocio(solicitud.emailSocio()).orElseThrow(SocioNoValido::new);
-
             return ResponseEntity.status(HttpStatus.CREATED).body(mapeador.dto(servicioClub.crearSolicitud(
-                    socio,
-                    actividad,
+                    solicitud.emailSocio(),
+                    id,
                     solicitud.nAcompanantes()
             )));
 
@@ -100,14 +136,11 @@ public class ControladorClub {
     }
 
     @PutMapping("/actividades/{id}/solicitudes/{idSolicitud}")
-    public ResponseEntity<DTOSolicitud> modificarAcompanantes(@PathVariable int id, @RequestBody DTOSolicitud solicitud) {
+    public ResponseEntity<DTOSolicitud> modificarAcompanantes(@PathVariable int id, @PathVariable int idSolicitud, @RequestBody DTOSolicitud solicitud) {
         try {
-            Actividad actividad = servicioClub.buscarActividadPorId(id).orElseThrow(ActividadNoRegistrada::new);
-            Solicitud solicitudEnt = mapeador.entidad(solicitud);
-
             return ResponseEntity.status(HttpStatus.OK).body(mapeador.dto(servicioClub.modificarSolicitud(
-                    actividad,
-                    solicitudEnt,
+                    id,
+                    idSolicitud,
                     solicitud.nAcompanantes()
             )));
         } catch (SolicitudNoExistente | ActividadNoRegistrada e) {
@@ -120,7 +153,7 @@ public class ControladorClub {
 
     @PostMapping ("/temporadas")
     public ResponseEntity<DTOTemporada> nuevaTemporada() {
-        servicioClub.crearTemporada(LocalDate.now().getYear());
+        servicioClub.crearTemporada(calendario.anioActual());
 
         return ResponseEntity.status(HttpStatus.CREATED).build();
 
@@ -129,9 +162,7 @@ public class ControladorClub {
     @DeleteMapping("/actividades/{id}/solicitudes/{idSolicitud}")
     public ResponseEntity<Void> eliminarSolicitud(@PathVariable int id, @PathVariable int idSolicitud) {
         try {
-            Actividad actividad = servicioClub.buscarActividadPorId(id).orElseThrow(ActividadNoRegistrada::new);
-            Solicitud solicitudEnt = servicioClub.buscarSolicitudPorId(id, idSolicitud).orElseThrow(SolicitudNoExistente::new);
-            servicioClub.cancelarSolicitud(actividad, solicitudEnt);
+            servicioClub.cancelarSolicitud(id, idSolicitud);
             return ResponseEntity.status(HttpStatus.OK).build();
         } catch (ActividadNoRegistrada | SolicitudNoExistente e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
@@ -140,13 +171,178 @@ public class ControladorClub {
         }
     }
 
+    @PostMapping("/actividades/{id}/plazas")
+    public ResponseEntity<List<DTOSolicitud>> asignarPlazas(@PathVariable int id, @RequestBody Map<Integer, Integer> plazasPorSolicitud) {
+        try {
+            return ResponseEntity.ok(servicioClub.asignarPlazas(admin, id, plazasPorSolicitud).stream().map(s -> mapeador.dto(s)).toList());
+        } catch (ActividadNoRegistrada | SolicitudNoExistente e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (InscripcionAbierta | NoDisponibilidadPlazas e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (SolicitudNoValida e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+        }
+    }
+
     @GetMapping("/actividades/{id}/solicitudes")
-    public ResponseEntity<List<DTOSolicitud>> obtenerSolicitudesActividad(@PathVariable int id) {
+    public ResponseEntity<List<DTOSolicitud>> obtenerSolicitudesActividad(@PathVariable int id,
+                                                                          @RequestParam(defaultValue = "0") int despues,
+                                                                          @RequestParam(defaultValue = "" + TAM_PAGINA) int tam) {
+        try {
+            return pagina(servicioClub.listarSolicitudesDeActividad(admin, id, despues, tamPagina(tam)), tamPagina(tam), DTOSolicitud::id);
+        } catch (ActividadNoRegistrada e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
+    @GetMapping(value = "/actividades/{id}/solicitudes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSolicitudesActividad(@PathVariable int id) {
         try {
-            Actividad actividad = servicioClub.buscarActividadPorId(id).orElseThrow(ActividadNoRegistrada::new);
-            return ResponseEntity.ok(servicioClub.buscarSolicitudesDeActividad(admin, actividad).stream().map(s -> mapeador.dto(s)).toList());
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .body(streamPaginado(
+                            servicioClub.listarSolicitudesDeActividad(admin, id, 0, TAM_PAGINA_MAXIMO),
+                            despues -> servicioClub.listarSolicitudesDeActividad(admin, id, despues, TAM_PAGINA_MAXIMO),
+                            DTOSolicitud::id));
         } catch (ActividadNoRegistrada e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
     }
+
+    @GetMapping(value = "/exportacion/socios", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportarSociosCsv() {
+        return exportacion(TEXT_CSV, DTOFilaSocio.class, destino -> servicioClub.exportarSocios(admin, s -> destino.accept(mapeador.fila(s))));
+    }
+
+    @GetMapping(value = "/exportacion/socios", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarSociosNdjson() {
+        return exportacion(MediaType.APPLICATION_NDJSON, DTOFilaSocio.class, destino -> servicioClub.exportarSocios(admin, s -> destino.accept(mapeador.fila(s))));
+    }
+
+    @GetMapping(value = "/exportacion/temporadas/{anio}/solicitudes", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportarInscripcionesCsv(@PathVariable int anio) {
+        return exportacion(TEXT_CSV, DTOInscripcion.class, destino -> servicioClub.exportarInscripciones(admin, anio, s -> destino.accept(mapeador.inscripcion(s))));
+    }
+
+    @GetMapping(value = "/exportacion/temporadas/{anio}/solicitudes", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportarInscripcionesNdjson(@PathVariable int anio) {
+        return exportacion(MediaType.APPLICATION_NDJSON, DTOInscripcion.class, destino -> servicioClub.exportarInscripciones(admin, anio, s -> destino.accept(mapeador.inscripcion(s))));
+    }
+
+    /**
+     * @param tam tamaño de página solicitado
+     * @return tamaño de página acotado entre 1 y el máximo permitido
+     */
+    private static int tamPagina(int tam) {
+        return Math.max(1, Math.min(tam, TAM_PAGINA_MAXIMO));
+    }
+
+    /**
+     * @param pagina elementos de la página, ordenados por id
+     * @param tam    tamaño de página aplicado
+     * @param id     obtiene el id de un elemento
+     * @return respuesta con la página y, si está completa, la cabecera Link con la URL de la siguiente
+     * @brief Respuesta de un listado paginado por cursor
+     * @implNote La siguiente página es la misma petición con despues igual al id del último elemento. Si la
+     * última página está completa, su enlace lleva a una página vacía, que ya no tiene enlace.
+     */
+    private static <T> ResponseEntity<List<T>> pagina(List<T> pagina, int tam, ToIntFunction<T> id) {
+        if (pagina.size() < tam)
+            return ResponseEntity.ok(pagina);
+
+        String siguiente = ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("despues", id.applyAsInt(pagina.getLast()))
+                .replaceQueryParam("tam", tam)
+                .toUriString();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.LINK, "<" + siguiente + ">; rel=\"next\"")
+                .body(pagina);
+    }
+
+    /**
+     * @param primeraPagina primera página, obtenida antes de empezar a responder para poder devolver errores
+     * @param siguiente     obtiene la página que sigue al id dado
+     * @param id            obtiene el id de un elemento
+     * @return cuerpo de la respuesta que escribe un DTO JSON por línea, página a página
+     * @brief Respuesta NDJSON que no mantiene en memoria más de una página
+     */
+    private <T> StreamingResponseBody streamPaginado(List<T> primeraPagina, IntFunction<List<T>> siguiente,
+                                                     ToIntFunction<T> id) {
+        return salida -> {
+            List<T> pagina = primeraPagina;
+            while (!pagina.isEmpty()) {
+                for (T elemento : pagina) {
+                    escribirLinea(salida, elemento);
+                }
+                salida.flush();
+                if (pagina.size() < TAM_PAGINA_MAXIMO)
+                    break;
+                pagina = siguiente.apply(id.applyAsInt(pagina.getLast()));
+            }
+        };
+    }
+
+    /**
+     * @param tipo       formato de la respuesta: CSV con cabecera o NDJSON
+     * @param fila       tipo de las filas; sus componentes son las columnas del CSV
+     * @param exportador entrega cada fila al consumidor que recibe, a medida que la lee
+     * @return respuesta que escribe cada fila en cuanto se lee, por trozos y sin longitud conocida
+     * @brief Exportación de un listado completo que no mantiene las filas en memoria
+     * @implNote El exportador se ejecuta al escribir la respuesta, fuera de la petición, así que abre
+     * su propia transacción.
+     */
+    private <T extends Record> ResponseEntity<StreamingResponseBody> exportacion(MediaType tipo, Class<T> fila, Consumer<Consumer<T>> exportador) {
+        RecordComponent[] columnas = fila.getRecordComponents();
+        boolean csv = tipo.equals(TEXT_CSV);
+        return ResponseEntity.ok()
+                .contentType(tipo)
+                .body(salida -> {
+                    try {
+                        if (csv)
+                            escribirCsv(salida, Arrays.stream(columnas).map(RecordComponent::getName).toArray());
+                        exportador.accept(elemento -> {
+                            try {
+                                if (csv)
+                                    escribirCsv(salida, valores(columnas, elemento));
+                                else
+                                    escribirLinea(salida, elemento);
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e);
+                            }
+                        });
+                    } catch (UncheckedIOException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private static Object[] valores(RecordComponent[] columnas, Record fila) {
+        Object[] valores = new Object[columnas.length];
+        try {
+            for (int i = 0; i < columnas.length; i++)
+                valores[i] = columnas[i].getAccessor().invoke(fila);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        return valores;
+    }
+
+    private static void escribirCsv(OutputStream salida, Object[] valores) throws IOException {
+        StringBuilder linea = new StringBuilder();
+        for (int i = 0; i < valores.length; i++) {
+            if (i > 0)
+                linea.append(',');
+            String valor = valores[i] == null ? "" : valores[i].toString();
+            if (valor.contains(",") || valor.contains("\"") || valor.contains("\n") || valor.contains("\r"))
+                valor = '"' + valor.replace("\"", "\"\"") + '"';
+            linea.append(valor);
+        }
+        linea.append("\r\n");
+        salida.write(linea.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void escribirLinea(OutputStream salida, Object dto) throws IOException {
+        salida.write(objectMapper.writeValueAsBytes(dto));
+        salida.write('\n');
+    }
 }
@@ -0,0 +1,9 @@
+package es.ujaen.dae.clubsocios.rest.dto;
+
+public record DTOFilaSocio(
+        String email,
+        String nombre,
+        String apellidos,
+        String tlf,
+        boolean cuotaPagada) {
+}
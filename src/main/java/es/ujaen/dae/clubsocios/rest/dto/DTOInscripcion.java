@@ -0,0 +1,14 @@
+package es.ujaen.dae.clubsocios.rest.dto;
+
+import java.time.LocalDate;
+
+public record DTOInscripcion(
+        int idActividad,
+        String tituloActividad,
+        int precio,
+        int idSolicitud,
+        String emailSocio,
+        LocalDate fecha,
+        int nAcompanantes,
+        int plazasAceptadas) {
+}
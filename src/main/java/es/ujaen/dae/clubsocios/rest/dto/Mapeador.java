@@ -6,6 +6,7 @@ import es.ujaen.dae.clubsocios.entidades.Solicitud;
 import es.ujaen.dae.clubsocios.entidades.Temporada;
 import es.ujaen.dae.clubsocios.excepciones.SocioNoValido;
 import es.ujaen.dae.clubsocios.repositorios.RepositorioSocios;
+import es.ujaen.dae.clubsocios.servicios.Calendario;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -16,6 +17,8 @@ public class Mapeador {
     RepositorioSocios repositorioSocios;
     @Autowired
     PasswordEncoder codificadorClaves;
+    @Autowired
+    Calendario calendario;
 
     public DTOSocio dto(Socio socio) {
         return new DTOSocio(
@@ -100,6 +103,28 @@ public class Mapeador {
                 solicitud.getSocio().getEmail());
     }
 
+    public DTOFilaSocio fila(Socio socio) {
+        return new DTOFilaSocio(
+                socio.getEmail(),
+                socio.getNombre(),
+                socio.getApellidos(),
+                socio.getTelefono(),
+                socio.isCuotaPagada());
+    }
+
+    public DTOInscripcion inscripcion(Solicitud solicitud) {
+        Actividad actividad = solicitud.getActividad();
+        return new DTOInscripcion(
+                actividad.getId(),
+                actividad.getTitulo(),
+                actividad.getPrecio(),
+                solicitud.getId(),
+                solicitud.getSocio().getEmail(),
+                solicitud.getFecha(),
+                solicitud.getnAcompanantes(),
+                solicitud.getPlazasAceptadas());
+    }
+
     public Solicitud entidad(DTOSolicitud dtosolicitud) {
         Socio socio = repositorioSocios.buscar(dtosolicitud.emailSocio()).orElseThrow(SocioNoValido::new);
 
@@ -116,6 +141,7 @@ public class Mapeador {
 
         return new Solicitud(
                 socio,
-                dtosolicitud.nAcompanantes());
+                dtosolicitud.nAcompanantes(),
+                calendario.hoy());
     }
 }
@@ -0,0 +1,86 @@
+package es.ujaen.dae.clubsocios.seguridad;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.Base64;
+
+public class CodificadorClavesCache implements PasswordEncoder {
+    private static final String ALGORITMO = "HmacSHA256";
+
+    private final PasswordEncoder codificador;
+    private final Cache<String, Boolean> verificaciones;
+    // Clave aleatoria del proceso, para que las entradas de la caché no permitan recuperar las claves
+    private final SecretKey claveCache;
+
+    /**
+     * @param codificador  codificador que realiza la verificación real
+     * @param expiracion   tiempo que se recuerda una verificación correcta
+     * @param tamanoMaximo número máximo de verificaciones recordadas
+     * @brief Constructor parametrizado de la clase CodificadorClavesCache
+     */
+    public CodificadorClavesCache(PasswordEncoder codificador, Duration expiracion, long tamanoMaximo) {
+        this.codificador = codificador;
+        this.verificaciones = Caffeine.newBuilder()
+                .expireAfterWrite(expiracion)
+                .maximumSize(tamanoMaximo)
+                .build();
+        try {
+            this.claveCache = KeyGenerator.getInstance(ALGORITMO).generateKey();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String encode(CharSequence clave) {
+        return codificador.encode(clave);
+    }
+
+    /**
+     * @param clave           clave en claro
+     * @param claveCodificada clave codificada almacenada
+     * @return true si la clave es correcta
+     * @brief Comprueba una clave, usando la caché si ya se verificó antes
+     * @implNote La entrada depende de la clave codificada, por lo que deja de ser válida
+     * en cuanto el socio cambia su clave. Las verificaciones fallidas no se guardan.
+     */
+    @Override
+    public boolean matches(CharSequence clave, String claveCodificada) {
+        if (clave == null || claveCodificada == null)
+            return codificador.matches(clave, claveCodificada);
+
+        String entrada = entradaCache(clave, claveCodificada);
+        if (verificaciones.getIfPresent(entrada) != null)
+            return true;
+
+        boolean correcta = codificador.matches(clave, claveCodificada);
+        if (correcta)
+            verificaciones.put(entrada, Boolean.TRUE);
+        return correcta;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String claveCodificada) {
+        return codificador.upgradeEncoding(claveCodificada);
+    }
+
+    private String entradaCache(CharSequence clave, String claveCodificada) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITMO);
+            mac.init(claveCache);
+            mac.update(claveCodificada.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return Base64.getEncoder().encodeToString(mac.doFinal(clave.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
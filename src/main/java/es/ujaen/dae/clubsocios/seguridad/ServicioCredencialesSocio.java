@@ -7,14 +7,16 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 
 @Configuration
-public class ServicioCredencialesSocio {
+public class ServicioCredencialesSocio implements UserDetailsService {
 
     @Autowired
     ServicioClub servicioClub;
 
+    @Override
     public UserDetails loadUserByUsername(String userName) throws UsernameNotFoundException {
 
         Socio socio=servicioClub.buscarSocio(userName).orElseThrow(() -> new UsernameNotFoundException(""));
@@ -1,5 +1,6 @@
 package es.ujaen.dae.clubsocios.seguridad;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -9,12 +10,19 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.access.expression.WebExpressionAuthorizationManager;
 
+import java.time.Duration;
+
 @Configuration
 public class ServicioSeguridad {
 
+    /**
+     * @brief Codificador BCrypt que recuerda durante unos minutos las verificaciones correctas,
+     * ya que HTTP Basic sin sesión verifica la clave en cada petición
+     */
     @Bean
-    PasswordEncoder passwordEncoder(){
-        return new BCryptPasswordEncoder();
+    PasswordEncoder passwordEncoder(@Value("${clubsocios.seguridad.cache.expiracion:5m}") Duration expiracion,
+                                    @Value("${clubsocios.seguridad.cache.tamano-maximo:10000}") long tamanoMaximo){
+        return new CodificadorClavesCache(new BCryptPasswordEncoder(), expiracion, tamanoMaximo);
     }
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception{
@@ -27,7 +35,12 @@ public class ServicioSeguridad {
                         .requestMatchers(HttpMethod.GET, "/socios/{email}")
                         .access(new WebExpressionAuthorizationManager("hasRole('DIRECCION') or (hasRole('SOCIO') and #email == principal.username)"))
                         .requestMatchers(HttpMethod.POST, "/actividades").hasRole("DIRECCION")
+                        .requestMatchers(HttpMethod.POST, "/club/actividades/{id}/plazas").hasRole("DIRECCION")
+                        .requestMatchers(HttpMethod.GET, "/club/socios").hasRole("DIRECCION")
+                        .requestMatchers("/club/exportacion/**").hasRole("DIRECCION")
                         .requestMatchers("/club/**").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("DIRECCION")
                 )
                 .build();
 
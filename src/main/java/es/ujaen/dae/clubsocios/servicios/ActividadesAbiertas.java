@@ -0,0 +1,119 @@
+package es.ujaen.dae.clubsocios.servicios;
+
+import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.repositorios.RepositorioActividades;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+@Service
+public class ActividadesAbiertas {
+    @Autowired
+    RepositorioActividades repositorioActividades;
+    @Autowired
+    Calendario calendario;
+
+    // Instantánea de las actividades abiertas, válida el día en que se construye mientras su versión coincida con la actual
+    private record Instantanea(long version, LocalDate fecha, List<Actividad> actividades) {
+        /**
+         * @return copia de la instantánea con las plazas ocupadas de una actividad cambiadas
+         */
+        Instantanea conPlazasOcupadas(int idActividad, int plazasOcupadas) {
+            List<Actividad> nuevas = new ArrayList<>(actividades.size());
+            for (Actividad a : actividades) {
+                nuevas.add(a.getId() != idActividad ? a : new Actividad(a.getId(), a.getTitulo(), a.getDescripcion(),
+                        a.getPrecio(), a.getPlazas(), plazasOcupadas, a.getFechaInicioInscripcion(),
+                        a.getFechaFinInscripcion(), a.getFechaCelebracion()));
+            }
+            return new Instantanea(version, fecha, List.copyOf(nuevas));
+        }
+    }
+
+    private final AtomicReference<Instantanea> instantanea = new AtomicReference<>();
+    private final AtomicLong version = new AtomicLong();
+    // Plazas ocupadas publicadas en la instantánea desde que se arrancó
+    private final AtomicLong cambiosPlazas = new AtomicLong();
+
+    /**
+     * @return lista inmutable de actividades abiertas, ordenadas por id
+     * @brief Devuelve las actividades a las que es posible inscribirse
+     * @implNote Devuelve una instantánea en memoria que solo se vuelve a consultar cuando se invalida o cambia
+     * el día; las plazas ocupadas se actualizan en ella sin consultar. Las actividades son copias sin solicitudes.
+     */
+    public List<Actividad> buscar() {
+        Instantanea actual = instantanea.get();
+        if (actual != null && actual.version() == version.get() && actual.fecha().equals(calendario.hoy()))
+            return actual.actividades();
+        return reconstruir();
+    }
+
+    /**
+     * @return lista inmutable de actividades abiertas
+     * @brief Vuelve a consultar las actividades abiertas y guarda la instantánea
+     * @implNote Si la instantánea se invalida mientras se consulta, se guarda con la versión anterior
+     * y la siguiente lectura la vuelve a construir. Lo mismo si se publican plazas ocupadas mientras tanto,
+     * ya que pueden haberse aplicado a la instantánea anterior y no estar en la consulta.
+     */
+    private List<Actividad> reconstruir() {
+        long versionConsultada = version.get();
+        long cambiosConsultados = cambiosPlazas.get();
+        LocalDate hoy = calendario.hoy();
+        List<Actividad> actividades = List.copyOf(repositorioActividades.buscarCopiasActividadesAbiertas(hoy));
+        instantanea.set(new Instantanea(versionConsultada, hoy, actividades));
+        if (cambiosPlazas.get() != cambiosConsultados)
+            version.incrementAndGet();
+        return actividades;
+    }
+
+    /**
+     * @brief Invalida la instantánea cuando se confirma la transacción en curso, o en el momento si no hay ninguna
+     * @implNote Para cambios que afectan a qué actividades están abiertas: actividades nuevas y cambios de fechas.
+     */
+    void invalidar() {
+        alConfirmar(version::incrementAndGet);
+    }
+
+    /**
+     * @param actividad actividad cuyas plazas ocupadas han cambiado, con su fila bloqueada
+     * @brief Publica en la instantánea las plazas ocupadas de la actividad cuando se confirma la transacción en curso
+     * @implNote Solo cambia esa actividad, sin volver a consultar las demás. Si dos transacciones de la misma
+     * actividad se confirman casi a la vez, la instantánea puede quedarse con el valor de la primera hasta el
+     * siguiente cambio o reconstrucción.
+     */
+    void actualizarPlazas(Actividad actividad) {
+        int idActividad = actividad.getId();
+        int plazasOcupadas = actividad.getPlazasOcupadas();
+        alConfirmar(() -> {
+            cambiosPlazas.incrementAndGet();
+            instantanea.updateAndGet(actual -> actual == null ? null : actual.conPlazasOcupadas(idActividad, plazasOcupadas));
+        });
+    }
+
+    private static void alConfirmar(Runnable accion) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    accion.run();
+                }
+            });
+        } else {
+            accion.run();
+        }
+    }
+
+    /**
+     * @brief Invalida la instantánea y la reconstruye en el momento
+     */
+    void renovar() {
+        version.incrementAndGet();
+        reconstruir();
+    }
+}
@@ -0,0 +1,40 @@
+package es.ujaen.dae.clubsocios.servicios;
+
+import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.entidades.Solicitud;
+import es.ujaen.dae.clubsocios.excepciones.ActividadNoRegistrada;
+import es.ujaen.dae.clubsocios.repositorios.RepositorioActividades;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Service
+public class AsignadorPlazas {
+    @Autowired
+    RepositorioActividades repositorioActividades;
+
+    /**
+     * @param idActividad id de la actividad con la inscripción cerrada
+     * @param hoy         fecha actual
+     * @return solicitudes a las que se ha aceptado alguna plaza
+     * @throws ActividadNoRegistrada si la actividad no existe
+     * @brief Reparte las plazas libres de una actividad entre su lista de espera
+     * @implNote Bloquea la actividad, por lo que no se mezcla con las asignaciones de la dirección ni con otra
+     * ejecución de la asignación; si la actividad ya se asignó no hace nada. Las solicitudes modificadas se
+     * escriben al confirmar, en lotes JDBC.
+     */
+    @Transactional
+    public List<Solicitud> asignarPlazasListaEspera(int idActividad, LocalDate hoy) {
+        Actividad actividad = repositorioActividades.buscarPorIdParaActualizar(idActividad).orElseThrow(ActividadNoRegistrada::new);
+        if (actividad.isPlazasAsignadas())
+            return List.of();
+
+        List<Solicitud> pendientes = actividad.getPlazasOcupadas() < actividad.getPlazas()
+                ? repositorioActividades.buscarSolicitudesPendientes(idActividad)
+                : List.of();
+        return actividad.asignarPlazasListaEspera(pendientes, hoy);
+    }
+}
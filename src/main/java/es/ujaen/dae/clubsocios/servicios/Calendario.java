@@ -0,0 +1,53 @@
+package es.ujaen.dae.clubsocios.servicios;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+@Service
+public class Calendario {
+    @Autowired
+    Clock reloj;
+
+    // Día actual y el intervalo, en milisegundos del reloj, durante el que es válido
+    private record Dia(LocalDate fecha, long inicio, long fin) {
+    }
+
+    private volatile Dia dia;
+
+    /**
+     * @return fecha actual según el reloj de la aplicación
+     * @brief Devuelve la fecha actual
+     * @implNote La fecha se calcula una vez al día; mientras no cambie el día solo se lee el reloj
+     * en milisegundos, sin consultar la zona horaria ni crear objetos.
+     */
+    public LocalDate hoy() {
+        long ahora = reloj.millis();
+        Dia actual = dia;
+        if (actual == null || ahora < actual.inicio() || ahora >= actual.fin()) {
+            actual = calcularDia(ahora);
+            dia = actual;
+        }
+        return actual.fecha();
+    }
+
+    /**
+     * @return año de la fecha actual
+     * @brief Devuelve el año actual
+     */
+    public int anioActual() {
+        return hoy().getYear();
+    }
+
+    private Dia calcularDia(long ahora) {
+        ZoneId zona = reloj.getZone();
+        LocalDate fecha = LocalDate.ofInstant(Instant.ofEpochMilli(ahora), zona);
+        return new Dia(fecha,
+                fecha.atStartOfDay(zona).toInstant().toEpochMilli(),
+                fecha.plusDays(1).atStartOfDay(zona).toInstant().toEpochMilli());
+    }
+}
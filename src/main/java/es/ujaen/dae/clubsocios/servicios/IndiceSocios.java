@@ -0,0 +1,184 @@
+package es.ujaen.dae.clubsocios.servicios;
+
+import es.ujaen.dae.clubsocios.entidades.Socio;
+import es.ujaen.dae.clubsocios.repositorios.RepositorioSocios;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+@Service
+public class IndiceSocios {
+    private static final Logger log = LoggerFactory.getLogger(IndiceSocios.class);
+
+    @Autowired
+    RepositorioSocios repositorioSocios;
+
+    // Socios que se leen en cada consulta al construir el índice
+    private static final int TAM_LOTE_CONSTRUCCION = 1000;
+
+    // Separa el término del email en las claves del índice; no puede aparecer en un término normalizado
+    private static final char SEPARADOR = '\u0000';
+
+    private static final Pattern MARCAS_Y_SEPARADOR = Pattern.compile("[\\p{M}\\x00]");
+    private static final Pattern ESPACIOS = Pattern.compile("\\s+");
+
+    // Claves "término SEPARADOR email" ordenadas: los socios cuyo término empieza por un prefijo son un rango contiguo
+    private final ConcurrentSkipListMap<String, Socio> entradas = new ConcurrentSkipListMap<>();
+    private volatile boolean construido;
+
+    // Espera tras el primer fallo de la construcción; se duplica en cada fallo hasta REINTENTO_MAXIMO
+    @Value("${clubsocios.indice-socios.reintento:PT10S}")
+    Duration reintento = Duration.ofSeconds(10);
+    private static final Duration REINTENTO_MAXIMO = Duration.ofMinutes(5);
+
+    private final AtomicLong fallos = new AtomicLong();
+    private volatile Thread construccion;
+
+    /**
+     * @brief Construye el índice en segundo plano al arrancar la aplicación
+     * @implNote Mientras se construye, las búsquedas usan la consulta a la base de datos. Si la construcción
+     * falla, se registra el error, se cuenta en getFallosConstruccion y se reintenta, esperando cada vez
+     * el doble (desde clubsocios.indice-socios.reintento hasta cinco minutos).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    void construirEnSegundoPlano() {
+        construccion = Thread.ofVirtual().name("indice-socios").start(() -> {
+            Duration espera = reintento;
+            while (!construido) {
+                try {
+                    construir();
+                } catch (RuntimeException e) {
+                    //El índice sigue sin construir y las búsquedas usan la base de datos hasta el siguiente intento
+                    fallos.incrementAndGet();
+                    log.warn("No se ha podido construir el índice de socios; se reintenta en {}", espera, e);
+                    try {
+                        Thread.sleep(espera);
+                    } catch (InterruptedException interrupcion) {
+                        return;
+                    }
+                    Duration doble = espera.multipliedBy(2);
+                    espera = doble.compareTo(REINTENTO_MAXIMO) < 0 ? doble : REINTENTO_MAXIMO;
+                }
+            }
+        });
+    }
+
+    /**
+     * @brief Detiene los reintentos de construcción pendientes al cerrar la aplicación
+     */
+    @PreDestroy
+    void detener() {
+        if (construccion != null)
+            construccion.interrupt();
+    }
+
+    /**
+     * @brief Carga en el índice todos los socios de la base de datos, por lotes
+     * @implNote Los socios que se añaden mientras tanto entran por anadir, así que no se pierde ninguno.
+     */
+    void construir() {
+        String despues = "";
+        List<Socio> lote;
+        do {
+            lote = repositorioSocios.buscarPagina(despues, TAM_LOTE_CONSTRUCCION);
+            lote.forEach(this::anadir);
+            if (!lote.isEmpty())
+                despues = lote.getLast().getEmail();
+        } while (lote.size() == TAM_LOTE_CONSTRUCCION);
+        construido = true;
+    }
+
+    /**
+     * @brief Vacía el índice, que vuelve a estar sin construir
+     * @implNote Esta función se utiliza únicamente para testear la búsqueda sin índice.
+     */
+    void vaciar() {
+        construido = false;
+        entradas.clear();
+    }
+
+    /**
+     * @return true si el índice tiene todos los socios y puede responder las búsquedas
+     */
+    public boolean isConstruido() {
+        return construido;
+    }
+
+    /**
+     * @return número de intentos de construir el índice que han fallado desde el arranque
+     */
+    public long getFallosConstruccion() {
+        return fallos.get();
+    }
+
+    /**
+     * @param socio socio que se añade
+     * @brief Añade un socio al índice por su email, su nombre completo, sus apellidos y cada una de sus palabras
+     * @implNote Se guarda una copia sin la clave.
+     */
+    public void anadir(Socio socio) {
+        Socio copia = new Socio(socio.getNombre(), socio.getApellidos(), socio.getEmail(), socio.getTelefono(), null);
+        for (String termino : terminos(socio))
+            entradas.put(termino + SEPARADOR + socio.getEmail(), copia);
+    }
+
+    /**
+     * @param prefijo comienzo del email, del nombre, de los apellidos o de alguna de sus palabras
+     * @param tam     número máximo de socios a devolver
+     * @return socios encontrados, sin repetir, en el orden del término que coincide
+     * @brief Busca los socios por prefijo
+     * @implNote No distingue mayúsculas ni tildes. Solo recorre las entradas que empiezan por el prefijo
+     * hasta reunir tam socios.
+     */
+    public List<Socio> buscar(String prefijo, int tam) {
+        String termino = normalizar(prefijo);
+        Map<String, Socio> encontrados = new LinkedHashMap<>();
+        for (Map.Entry<String, Socio> entrada : entradas.tailMap(termino).entrySet()) {
+            if (encontrados.size() == tam || !entrada.getKey().startsWith(termino))
+                break;
+            encontrados.putIfAbsent(entrada.getValue().getEmail(), entrada.getValue());
+        }
+        return List.copyOf(encontrados.values());
+    }
+
+    private static Set<String> terminos(Socio socio) {
+        String nombre = normalizar(socio.getNombre());
+        String apellidos = normalizar(socio.getApellidos());
+        String nombreCompleto = (nombre + " " + apellidos).trim();
+
+        Set<String> terminos = new HashSet<>();
+        terminos.add(normalizar(socio.getEmail()));
+        terminos.add(nombreCompleto);
+        terminos.add(apellidos);
+        for (String palabra : nombreCompleto.split(" "))
+            terminos.add(palabra);
+        terminos.remove("");
+        return terminos;
+    }
+
+    /**
+     * @param texto texto a normalizar
+     * @return texto en minúsculas, sin tildes ni separadores y con los espacios simplificados
+     */
+    static String normalizar(String texto) {
+        String sinMarcas = MARCAS_Y_SEPARADOR.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return ESPACIOS.matcher(sinMarcas.toLowerCase(Locale.ROOT).trim()).replaceAll(" ");
+    }
+}
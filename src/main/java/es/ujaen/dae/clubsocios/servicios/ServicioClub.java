@@ -4,26 +4,33 @@ import es.ujaen.dae.clubsocios.entidades.Actividad;
 import es.ujaen.dae.clubsocios.entidades.Socio;
 import es.ujaen.dae.clubsocios.entidades.Solicitud;
 import es.ujaen.dae.clubsocios.entidades.Temporada;
-import es.ujaen.dae.clubsocios.excepciones.OperacionDeDireccion;
-import es.ujaen.dae.clubsocios.excepciones.SocioNoValido;
-import es.ujaen.dae.clubsocios.excepciones.SocioYaRegistrado;
+import es.ujaen.dae.clubsocios.excepciones.*;
 import es.ujaen.dae.clubsocios.repositorios.RepositorioActividades;
 import es.ujaen.dae.clubsocios.repositorios.RepositorioSocios;
 import es.ujaen.dae.clubsocios.repositorios.RepositorioTemporadas;
+import es.ujaen.dae.clubsocios.rest.dto.DTOActividad;
+import es.ujaen.dae.clubsocios.rest.dto.DTOSolicitud;
 import jakarta.annotation.PostConstruct;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Repository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.validation.annotation.Validated;
 
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 @Repository
@@ -35,6 +42,21 @@ public class ServicioClub {
     RepositorioActividades repositorioActividades;
     @Autowired
     RepositorioTemporadas repositorioTemporadas;
+    @Autowired
+    Calendario calendario;
+    @Autowired
+    AsignadorPlazas asignadorPlazas;
+    @Autowired
+    IndiceSocios indiceSocios;
+    @Autowired
+    ActividadesAbiertas actividadesAbiertas;
+
+    // Tiempo máximo que una exportación mantiene abiertos su transacción, su conexión y su cursor
+    @Value("${clubsocios.exportacion.limite:PT5M}")
+    Duration limiteExportacion;
+
+    // Número de actividades que se leen en cada consulta de la asignación automática de plazas
+    private static final int TAM_LOTE_ASIGNACION = 100;
 
     // Socio especial que representa al administrador del club
     private static final Socio admin = new Socio("administrador", "-", "admin@club.com", "666666666", "$2a$10$JAfCuJzY1t.zIfTfhX7Zb.ep0zj0J/c4i7LXDa6.cAg0b6ikt94LG");
@@ -70,13 +92,9 @@ public class ServicioClub {
             return admin;
         }
 
-        if (repositorioSocios.buscar(email).isPresent()) {
-            Socio socio = repositorioSocios.buscar(email).get();
-            socio.comprobarCredenciales(clave);
-            return socio;
-        } else {
-            throw new SocioNoValido();
-        }
+        Socio socio = repositorioSocios.buscar(email).orElseThrow(SocioNoValido::new);
+        socio.comprobarCredenciales(clave);
+        return socio;
     }
 
     /**
@@ -103,6 +121,7 @@ public class ServicioClub {
             throw new SocioYaRegistrado();
         }
         repositorioSocios.guardar(socio);
+        indexarSocio(socio);
     }
 
     /**
@@ -115,6 +134,87 @@ public class ServicioClub {
         return repositorioSocios.buscarTodos();
     }
 
+    /**
+     * @param direccion Socio que realiza la operación
+     * @param prefijo   comienzo del email, del nombre, de los apellidos o de alguna de sus palabras
+     * @param tam       número máximo de socios a devolver
+     * @return socios encontrados
+     * @brief Busca socios por prefijo para el directorio de la dirección
+     * @implNote Responde desde el índice en memoria; hasta que termina de construirse tras el arranque,
+     * con una consulta a la base de datos limitada a tam socios.
+     */
+    public List<Socio> buscarSocios(Socio direccion, String prefijo, int tam) {
+        if (!esAdmin(direccion))
+            throw new OperacionDeDireccion();
+        if (indiceSocios.isConstruido())
+            return indiceSocios.buscar(prefijo, tam);
+        return repositorioSocios.buscarPorPrefijo(prefijo, tam);
+    }
+
+    /**
+     * @param direccion Socio que realiza la operación
+     * @param destino   recibe cada socio, en orden de email
+     * @brief Exporta todos los socios
+     * @throws ExportacionCaducada si la exportación dura más de clubsocios.exportacion.limite
+     * @implNote Los socios se leen de la base de datos a medida que se entregan, sin reunirlos en una lista;
+     * el destino debe procesar cada uno en el momento. Como la transacción, su conexión y el cursor siguen
+     * abiertos mientras el destino los procesa, la exportación se interrumpe al superar el tiempo máximo.
+     */
+    @Transactional(readOnly = true)
+    public void exportarSocios(Socio direccion, Consumer<Socio> destino) {
+        if (!esAdmin(direccion))
+            throw new OperacionDeDireccion();
+        repositorioSocios.recorrerTodos(conLimite(destino));
+    }
+
+    /**
+     * @param direccion Socio que realiza la operación
+     * @param anio      año de la temporada
+     * @param destino   recibe cada solicitud, con su actividad y su socio, en orden de actividad
+     * @brief Exporta las solicitudes de todas las actividades de una temporada
+     * @throws ExportacionCaducada si la exportación dura más de clubsocios.exportacion.limite
+     * @implNote Las solicitudes se leen de la base de datos a medida que se entregan, sin reunirlas en una lista;
+     * el destino debe procesar cada una en el momento. Como en exportarSocios, la exportación se interrumpe
+     * al superar el tiempo máximo.
+     */
+    @Transactional(readOnly = true)
+    public void exportarInscripciones(Socio direccion, int anio, Consumer<Solicitud> destino) {
+        if (!esAdmin(direccion))
+            throw new OperacionDeDireccion();
+        repositorioActividades.recorrerSolicitudesTemporada(anio, conLimite(destino));
+    }
+
+    /**
+     * @param destino destino de una exportación
+     * @return destino que lanza ExportacionCaducada si recibe un elemento después del tiempo máximo de exportación
+     * @implNote Al lanzarse la excepción se deshace la transacción y se liberan la conexión y el cursor. Un
+     * cliente que deja de leer del todo bloquea la escritura y lo corta el tiempo de espera del servidor.
+     */
+    private <T> Consumer<T> conLimite(Consumer<T> destino) {
+        long fin = System.nanoTime() + limiteExportacion.toNanos();
+        return elemento -> {
+            if (System.nanoTime() - fin > 0)
+                throw new ExportacionCaducada();
+            destino.accept(elemento);
+        };
+    }
+
+    /**
+     * @brief Añade el socio al índice de búsqueda cuando se confirma la transacción en curso
+     */
+    private void indexarSocio(Socio socio) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    indiceSocios.anadir(socio);
+                }
+            });
+        } else {
+            indiceSocios.anadir(socio);
+        }
+    }
+
     /**
      * @param direccion Miembro de la dirección que realiza la operación
      * @param socio     Socio que paga la cuota
@@ -148,7 +248,7 @@ public class ServicioClub {
      */
     @Scheduled(cron = "0 0 0 1 1 ?")
     public void crearTemporadaProgramada() {
-        int anio = LocalDate.now().getYear();
+        int anio = calendario.anioActual();
         repositorioTemporadas.crearTemporada(anio);
         repositorioSocios.marcarTodasCuotasNoPagadas();
     }
@@ -170,14 +270,24 @@ public class ServicioClub {
         return repositorioTemporadas.buscarTodasTemporadas();
     }
 
+    /**
+     * @return lista con el año de todas las temporadas
+     * @brief Busca los años de todas las temporadas
+     */
+    public List<Integer> buscarAniosTemporadas() {
+        return repositorioTemporadas.buscarAniosTemporadas();
+    }
+
     /**
      * @param actividad Actividad que se crea
      * @brief creación de una actividad
+     * @implNote La actividad se vincula a la temporada actual sin cargar el resto de sus actividades.
      */
     @Transactional
     public void crearActividad(@Valid Actividad actividad) {
-        repositorioTemporadas.temporadaActual().nuevaActividad(actividad);
+        repositorioTemporadas.buscar(calendario.anioActual()).get().nuevaActividad(actividad);
         repositorioActividades.guardarActividad(actividad);
+        invalidarActividadesAbiertas();
     }
 
     /**
@@ -190,11 +300,49 @@ public class ServicioClub {
     }
 
     /**
-     * @return lista de actividades abiertas
+     * @return lista inmutable de actividades abiertas, ordenadas por id
      * @brief Busca todas las actividades a las que es posible inscribirse.
+     * @implNote Devuelve una instantánea en memoria que solo se vuelve a consultar cuando se crea una actividad,
+     * cambian sus fechas o cambia el día. Los cambios de plazas ocupadas se publican en ella al confirmarse,
+     * sin volver a consultarla. Las actividades son copias sin solicitudes.
      */
     public List<Actividad> buscarActividadesAbiertas() {
-        return repositorioActividades.buscaTodasActividadesAbiertas();
+        return actividadesAbiertas.buscar();
+    }
+
+    /**
+     * @brief Invalida la instantánea de actividades abiertas cuando se confirma la transacción en curso
+     */
+    private void invalidarActividadesAbiertas() {
+        actividadesAbiertas.invalidar();
+    }
+
+    /**
+     * @brief Reconstruye las actividades abiertas al cambiar el día, ya que se abren y cierran inscripciones
+     */
+    @Scheduled(cron = "0 0 0 * * ?")
+    public void renovarActividadesAbiertas() {
+        actividadesAbiertas.renovar();
+    }
+
+    /**
+     * @brief Reparte las plazas libres de las actividades cuya inscripción se ha cerrado entre su lista de espera
+     * @implNote Las actividades se recorren en lotes de ids ordenados y cada una se asigna en su propia
+     * transacción, de modo que la memoria no depende del número de actividades de la temporada.
+     */
+    @Scheduled(cron = "0 5 0 * * ?")
+    public void asignarPlazasListaEspera() {
+        LocalDate hoy = calendario.hoy();
+        List<Integer> ids;
+        int despues = 0;
+        do {
+            ids = repositorioActividades.buscarActividadesPendientesDeAsignar(hoy, despues, TAM_LOTE_ASIGNACION);
+            for (int id : ids) {
+                asignadorPlazas.asignarPlazasListaEspera(id, hoy);
+            }
+            if (!ids.isEmpty())
+                despues = ids.get(ids.size() - 1);
+        } while (ids.size() == TAM_LOTE_ASIGNACION);
     }
 
     /**
@@ -203,7 +351,30 @@ public class ServicioClub {
      * @brief Devuelve una lista con todas las actividades de la temporada dada
      */
     public List<Actividad> buscarActividadesTemporada(int anio) {
-        return repositorioTemporadas.buscar(anio).get().getActividades();
+        return repositorioActividades.buscarActividadesTemporada(anio, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param anio      año de la temporada
+     * @param despues   id de la última actividad de la página anterior (0 para la primera página)
+     * @param tamPagina número máximo de actividades a devolver
+     * @return página de actividades de la temporada dada, ordenadas por id
+     * @brief Devuelve una página de las actividades de la temporada dada
+     */
+    public List<Actividad> buscarActividadesTemporada(int anio, int despues, int tamPagina) {
+        return repositorioActividades.buscarActividadesTemporada(anio, despues, tamPagina);
+    }
+
+    /**
+     * @param anio      año de la temporada
+     * @param despues   id de la última actividad de la página anterior (0 para la primera página)
+     * @param tamPagina número máximo de actividades a devolver
+     * @return página de actividades de la temporada dada como DTOs, ordenadas por id
+     * @brief Lista una página de las actividades de la temporada dada
+     * @implNote Para los listados de la API: no carga entidades.
+     */
+    public List<DTOActividad> listarActividadesTemporada(int anio, int despues, int tamPagina) {
+        return repositorioActividades.listarActividadesTemporada(anio, despues, tamPagina);
     }
 
     /**
@@ -214,6 +385,7 @@ public class ServicioClub {
      */
     protected void modificarFechaActividad(Actividad actividad) {
         repositorioActividades.modificarFechaActividad(actividad);
+        invalidarActividadesAbiertas();
     }
 
     /**
@@ -224,11 +396,33 @@ public class ServicioClub {
      */
     @Transactional
     public Solicitud crearSolicitud(Socio solicitante, Actividad actividad, int nAcompanantes) {
-        solicitante = repositorioSocios.buscar(solicitante.getEmail()).get();
-        actividad = repositorioActividades.buscarPorId(actividad.getId()).get();
-        Solicitud solicitud = new Solicitud(solicitante, nAcompanantes);
-        actividad.crearSolicitud(solicitud);
-        repositorioActividades.guardarSolicitud(solicitud);
+        return crearSolicitud(solicitante.getEmail(), actividad.getId(), nAcompanantes);
+    }
+
+    /**
+     * @param email         email del socio que va a realizar la solicitud
+     * @param idActividad   id de la actividad para la que se realiza la solicitud
+     * @param nAcompanantes número entero de acompañantes
+     * @throws SocioNoValido         si el socio no existe
+     * @throws ActividadNoRegistrada si la actividad no existe
+     * @throws InscripcionCerrada    si el periodo de inscripción no está abierto
+     * @throws SolicitudYaRealizada  si el socio ya tiene una solicitud en la actividad
+     * @brief crea la solicitud de una actividad
+     * @implNote Las reglas son las de Actividad.crearSolicitud, aplicadas con la fila de la actividad bloqueada
+     * para que no se pierdan plazas ocupadas concurrentes. No se cargan las solicitudes de la actividad.
+     */
+    @Transactional
+    public Solicitud crearSolicitud(String email, int idActividad, int nAcompanantes) {
+        Socio solicitante = repositorioSocios.buscar(email).orElseThrow(SocioNoValido::new);
+        Actividad actividad = repositorioActividades.buscarPorIdParaActualizar(idActividad).orElseThrow(ActividadNoRegistrada::new);
+        LocalDate hoy = calendario.hoy();
+
+        Solicitud solicitud = new Solicitud(solicitante, nAcompanantes, hoy);
+        actividad.crearSolicitud(solicitud, hoy);
+        if (solicitud.getPlazasAceptadas() > 0)
+            actividadesAbiertas.actualizarPlazas(actividad);
+
+        repositorioActividades.guardarSolicitud(actividad, solicitud);
         return solicitud;
     }
 
@@ -238,15 +432,50 @@ public class ServicioClub {
      * @return lista de solicitudes de la actividad
      * @brief Devuelve una lista con las solicitudes de una actividad
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public List<Solicitud> buscarSolicitudesDeActividad(Socio direccion, Actividad actividad) {
+        return buscarSolicitudesDeActividad(direccion, actividad.getId(), 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param direccion   Socio que realiza la operación
+     * @param idActividad id de la actividad de la que se buscan las solicitudes
+     * @param despues     id de la última solicitud de la página anterior (0 para la primera página)
+     * @param tamPagina   número máximo de solicitudes a devolver
+     * @return página de solicitudes de la actividad, ordenadas por id
+     * @throws ActividadNoRegistrada si la actividad no existe
+     * @brief Devuelve una página de las solicitudes de una actividad
+     */
+    @Transactional(readOnly = true)
+    public List<Solicitud> buscarSolicitudesDeActividad(Socio direccion, int idActividad, int despues, int tamPagina) {
+        comprobarListadoSolicitudes(direccion, idActividad);
+        return repositorioActividades.buscarSolicitudes(idActividad, despues, tamPagina);
+    }
+
+    /**
+     * @param direccion   Socio que realiza la operación
+     * @param idActividad id de la actividad de la que se listan las solicitudes
+     * @param despues     id de la última solicitud de la página anterior (0 para la primera página)
+     * @param tamPagina   número máximo de solicitudes a devolver
+     * @return página de solicitudes de la actividad como DTOs, ordenadas por id
+     * @throws ActividadNoRegistrada si la actividad no existe
+     * @brief Lista una página de las solicitudes de una actividad
+     * @implNote Para los listados de la API: una única consulta por página, sin cargar entidades.
+     */
+    @Transactional(readOnly = true)
+    public List<DTOSolicitud> listarSolicitudesDeActividad(Socio direccion, int idActividad, int despues, int tamPagina) {
+        comprobarListadoSolicitudes(direccion, idActividad);
+        return repositorioActividades.listarSolicitudes(idActividad, despues, tamPagina);
+    }
+
+    private void comprobarListadoSolicitudes(Socio direccion, int idActividad) {
         if (!esAdmin(direccion))
             throw new OperacionDeDireccion();
-        actividad = repositorioActividades.buscarPorId(actividad.getId()).get();
-        return actividad.getSolicitudes();
+        if (repositorioActividades.buscarPorId(idActividad).isEmpty())
+            throw new ActividadNoRegistrada();
     }
 
-    @Transactional
+    @Transactional(readOnly = true)
     public Optional<Solicitud> buscarSolicitudPorId(int idActividad, int idSolicitud) {
         Actividad actividad = repositorioActividades.buscarPorId(idActividad).get();
         return actividad.buscarSolicitudPorId(idSolicitud);
@@ -259,9 +488,24 @@ public class ServicioClub {
      */
     @Transactional
     public void cancelarSolicitud(Actividad actividad, Solicitud solicitud) {
-        actividad = repositorioActividades.buscarPorId(actividad.getId()).get();
-        actividad.cancelarSolicitud(solicitud);
+        cancelarSolicitud(actividad.getId(), solicitud.getId());
+    }
+
+    /**
+     * @param idActividad id de la actividad de la que se va a cancelar la solicitud
+     * @param idSolicitud id de la solicitud que se desea cancelar
+     * @throws ActividadNoRegistrada si la actividad no existe
+     * @throws SolicitudNoExistente  si la solicitud no existe
+     * @brief Elimina la solicitud de inscripción de un socio a una actividad
+     * @implNote Solo se cargan la solicitud y su actividad, bloqueadas en una misma consulta.
+     */
+    @Transactional
+    public void cancelarSolicitud(int idActividad, int idSolicitud) {
+        Solicitud solicitud = solicitudExistente(repositorioActividades.buscarSolicitudParaActualizar(idActividad, idSolicitud), idActividad);
+        solicitud.getActividad().cancelarSolicitud(solicitud, calendario.hoy());
         repositorioActividades.borrarSolicitud(solicitud);
+        if (solicitud.getPlazasAceptadas() > 0)
+            actividadesAbiertas.actualizarPlazas(solicitud.getActividad());
     }
 
     /**
@@ -272,10 +516,21 @@ public class ServicioClub {
      */
     @Transactional
     public Solicitud modificarSolicitud(Actividad actividad, Solicitud solicitud, int nAcompanantes) {
-        actividad = repositorioActividades.buscarPorId(actividad.getId()).get();
-        Solicitud solicitudActualizada = actividad.modificarAcompanantes(solicitud, nAcompanantes);
-        repositorioActividades.actualizarSolicitud(solicitudActualizada);
-        return solicitudActualizada;
+        return modificarSolicitud(actividad.getId(), solicitud.getId(), nAcompanantes);
+    }
+
+    /**
+     * @param idActividad   id de la actividad a la que se va a modificar el número de acompañantes
+     * @param idSolicitud   id de la solicitud que se va a modificar
+     * @param nAcompanantes número entero de acompañantes
+     * @throws ActividadNoRegistrada si la actividad no existe
+     * @throws SolicitudNoExistente  si la solicitud no existe
+     * @brief modifica el número de acompañantes que tendrá un socio
+     */
+    @Transactional
+    public Solicitud modificarSolicitud(int idActividad, int idSolicitud, int nAcompanantes) {
+        Solicitud solicitud = solicitudExistente(repositorioActividades.buscarSolicitud(idActividad, idSolicitud), idActividad);
+        return solicitud.getActividad().modificarAcompanantes(solicitud, nAcompanantes, calendario.hoy());
     }
 
     /**
@@ -289,11 +544,41 @@ public class ServicioClub {
         if (!esAdmin(direccion))
             throw new OperacionDeDireccion();
 
-        actividad = repositorioActividades.buscarPorId(actividad.getId()).get();
-        solicitud = actividad.aceptarPlaza(solicitud);
-        repositorioActividades.actualizar(actividad);
-        repositorioActividades.actualizarSolicitud(solicitud);
-        return solicitud;
+        Solicitud gestionada = solicitudExistente(repositorioActividades.buscarSolicitudParaActualizar(actividad.getId(), solicitud.getId()), actividad.getId());
+        return gestionada.getActividad().aceptarPlaza(gestionada, calendario.hoy());
+    }
+
+    /**
+     * @param direccion          Miembro de la dirección que realiza la operación
+     * @param idActividad        id de la actividad
+     * @param plazasPorSolicitud número de plazas a aceptar por id de solicitud
+     * @return solicitudes actualizadas
+     * @throws ActividadNoRegistrada   si la actividad no existe
+     * @throws SolicitudNoExistente    si alguna solicitud no pertenece a la actividad
+     * @throws SolicitudNoValida       si a alguna solicitud le falta el número de plazas o se le aceptarían más
+     *                                 plazas que las que pidió
+     * @throws NoDisponibilidadPlazas  si no quedan plazas libres para todas las asignaciones
+     * @brief Acepta varias plazas de varias solicitudes de una actividad en una sola operación
+     * @implNote Bloquea la actividad una vez, carga solo las solicitudes indicadas en una consulta y comprueba
+     * las plazas libres para el total; los cambios se escriben al confirmar, con las actualizaciones
+     * de las solicitudes agrupadas en lotes JDBC.
+     */
+    @Transactional
+    public List<Solicitud> asignarPlazas(Socio direccion, int idActividad, Map<Integer, Integer> plazasPorSolicitud) {
+        if (!esAdmin(direccion))
+            throw new OperacionDeDireccion();
+
+        Actividad actividad = repositorioActividades.buscarPorIdParaActualizar(idActividad).orElseThrow(ActividadNoRegistrada::new);
+        List<Solicitud> solicitudes = repositorioActividades.buscarSolicitudes(idActividad, plazasPorSolicitud.keySet());
+        if (solicitudes.size() != plazasPorSolicitud.size())
+            throw new SolicitudNoExistente();
+
+        Map<Solicitud, Integer> plazas = new HashMap<>();
+        for (Solicitud solicitud : solicitudes) {
+            plazas.put(solicitud, plazasPorSolicitud.get(solicitud.getId()));
+        }
+        actividad.aceptarPlazas(plazas, calendario.hoy());
+        return solicitudes;
     }
 
     /**
@@ -306,10 +591,22 @@ public class ServicioClub {
     public Solicitud quitarPlaza(Socio direccion, Actividad actividad, Solicitud solicitud) {
         if (!esAdmin(direccion))
             throw new OperacionDeDireccion();
-        actividad = repositorioActividades.buscarPorId(actividad.getId()).get();
-        solicitud = actividad.quitarPlaza(solicitud);
-        repositorioActividades.actualizar(actividad);
-        repositorioActividades.actualizarSolicitud(solicitud);
-        return solicitud;
+
+        Solicitud gestionada = solicitudExistente(repositorioActividades.buscarSolicitudParaActualizar(actividad.getId(), solicitud.getId()), actividad.getId());
+        return gestionada.getActividad().quitarPlaza(gestionada, calendario.hoy());
+    }
+
+    /**
+     * @param solicitud   resultado de buscar la solicitud en la actividad
+     * @param idActividad id de la actividad
+     * @return la solicitud gestionada
+     * @throws ActividadNoRegistrada si la actividad no existe
+     * @throws SolicitudNoExistente  si la solicitud no existe en la actividad
+     * @brief Obtiene la solicitud encontrada o lanza la excepción que corresponde
+     * @implNote La actividad solo se consulta por separado cuando no se ha encontrado la solicitud.
+     */
+    private Solicitud solicitudExistente(Optional<Solicitud> solicitud, int idActividad) {
+        return solicitud.orElseThrow(() -> repositorioActividades.buscarPorId(idActividad).isPresent()
+                ? new SolicitudNoExistente() : new ActividadNoRegistrada());
     }
 }
@@ -0,0 +1,47 @@
+-- Esquema generado por Hibernate (ddl-auto: update) antes de gestionar la base de datos con migraciones.
+-- Las bases de datos existentes se marcan con esta versión sin ejecutarla (baseline-on-migrate).
+
+create table temporada (
+    anio integer not null,
+    primary key (anio)
+);
+
+create table socio (
+    email varchar(255) not null,
+    nombre varchar(255) not null,
+    apellidos varchar(255) not null,
+    telefono varchar(255),
+    clave varchar(255) not null,
+    cuota_pagada bit not null,
+    primary key (email)
+);
+
+create table actividad (
+    id integer not null auto_increment,
+    titulo varchar(255) not null,
+    descripcion varchar(255) not null,
+    precio integer not null,
+    plazas integer not null,
+    plazas_ocupadas integer not null,
+    fecha_inicio_inscripcion date not null,
+    fecha_fin_inscripcion date not null,
+    fecha_celebracion date not null,
+    actividades_anio integer,
+    primary key (id)
+);
+
+create table solicitud (
+    id integer not null auto_increment,
+    actividad integer,
+    socio_email varchar(255),
+    n_acompanantes integer not null,
+    fecha date,
+    plazas_aceptadas integer not null,
+    primary key (id)
+);
+
+-- Los nombres de las claves ajenas son los que genera Hibernate, para que las migraciones posteriores
+-- puedan referirse a ellos también en las bases de datos existentes
+alter table actividad add constraint FKe7kxs7wftaw0ui0cng9mlkqy0 foreign key (actividades_anio) references temporada (anio);
+alter table solicitud add constraint FKjxwguve4yhaxgsx3fsx6lqyo1 foreign key (actividad) references actividad (id);
+alter table solicitud add constraint FKp9mkw5qchc8p11ty9nhmq3r0g foreign key (socio_email) references socio (email);
@@ -0,0 +1,42 @@
+-- Actividades abiertas: fecha_inicio_inscripcion <= hoy AND fecha_fin_inscripcion > hoy.
+-- La fecha de fin va primero porque es la condición selectiva: casi todas las actividades
+-- han empezado su inscripción, pero pocas la tienen aún sin terminar.
+create index idx_actividad_inscripcion on actividad (fecha_fin_inscripcion, fecha_inicio_inscripcion);
+
+-- Antes las solicitudes repetidas solo se comprobaban en memoria y sin bloqueo, así que puede haber varias del
+-- mismo socio en una actividad. Se conserva la primera con el mayor número de acompañantes y las plazas aceptadas
+-- de todas, hasta las que caben en ella; las que no caben quedan libres en la actividad.
+create table solicitud_duplicada (
+    actividad integer not null,
+    socio_email varchar(255) not null,
+    id_conservada integer not null,
+    n_acompanantes integer not null,
+    plazas_aceptadas integer not null
+);
+insert into solicitud_duplicada (actividad, socio_email, id_conservada, n_acompanantes, plazas_aceptadas)
+    select actividad, socio_email, min(id), max(n_acompanantes), sum(plazas_aceptadas)
+    from solicitud where actividad is not null and socio_email is not null
+    group by actividad, socio_email having count(*) > 1;
+
+update actividad set plazas_ocupadas = plazas_ocupadas -
+    (select sum(greatest(d.plazas_aceptadas - (d.n_acompanantes + 1), 0)) from solicitud_duplicada d where d.actividad = actividad.id)
+    where id in (select actividad from solicitud_duplicada);
+update solicitud set
+    n_acompanantes = (select d.n_acompanantes from solicitud_duplicada d where d.id_conservada = solicitud.id),
+    plazas_aceptadas = (select least(d.plazas_aceptadas, d.n_acompanantes + 1) from solicitud_duplicada d where d.id_conservada = solicitud.id)
+    where id in (select id_conservada from solicitud_duplicada);
+delete from solicitud where exists (select 1 from solicitud_duplicada d
+    where d.actividad = solicitud.actividad and d.socio_email = solicitud.socio_email and d.id_conservada <> solicitud.id);
+drop table solicitud_duplicada;
+
+-- Un socio solo puede tener una solicitud por actividad; también sirve para comprobar si ya existe
+alter table solicitud add constraint uk_solicitud_actividad_socio unique (actividad, socio_email);
+
+-- Solicitudes de una actividad, paginadas por id
+create index idx_solicitud_actividad on solicitud (actividad, id);
+
+-- Las actividades de una temporada y las solicitudes de un socio usan los índices que MySQL crea para las claves
+-- ajenas de V1: FKe7kxs7wftaw0ui0cng9mlkqy0 (actividad.actividades_anio; V5 la sustituye por fk_actividad_temporada
+-- sobre actividad.temporada) y FKp9mkw5qchc8p11ty9nhmq3r0g (solicitud.socio_email). La clave ajena
+-- FKjxwguve4yhaxgsx3fsx6lqyo1 (solicitud.actividad) no necesita índice propio: uk_solicitud_actividad_socio e
+-- idx_solicitud_actividad empiezan por esa columna, así que MySQL puede retirar el que creó para ella.
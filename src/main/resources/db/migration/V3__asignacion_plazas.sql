@@ -0,0 +1,8 @@
+-- Marca las actividades cuya lista de espera ya ha recorrido la asignación automática de plazas
+alter table actividad add column plazas_asignadas bit not null default false;
+
+-- Las actividades que ya estaban cerradas las gestionó la dirección a mano y no se vuelven a asignar
+update actividad set plazas_asignadas = true where fecha_fin_inscripcion < current_date;
+
+-- Actividades cerradas pendientes de asignar: plazas_asignadas = false AND fecha_fin_inscripcion < hoy
+create index idx_actividad_pendientes on actividad (plazas_asignadas, fecha_fin_inscripcion);
@@ -0,0 +1,12 @@
+-- Ids de actividades y solicitudes reservados en bloques (optimizador pooled-lo): cada fila guarda el primer
+-- id del siguiente bloque, de modo que Hibernate puede agrupar las inserciones en lotes JDBC.
+create table generador_ids (
+    entidad varchar(255) not null,
+    siguiente bigint not null,
+    primary key (entidad)
+);
+
+-- Los bloques continúan tras los ids ya asignados por auto_increment: el primero que se entrega es el guardado
+-- (hibernate.id.generator.stored_last_used: false)
+insert into generador_ids (entidad, siguiente) select 'actividad', coalesce(max(id), 0) + 1 from actividad;
+insert into generador_ids (entidad, siguiente) select 'solicitud', coalesce(max(id), 0) + 1 from solicitud;
@@ -0,0 +1,10 @@
+-- La temporada pasa a ser la dueña de la relación desde la actividad (columna temporada) en lugar de la
+-- columna actividades_anio que generaba Hibernate para Temporada.actividades; se conserva la temporada de cada actividad
+alter table actividad add column temporada integer;
+update actividad set temporada = actividades_anio;
+alter table actividad drop foreign key FKe7kxs7wftaw0ui0cng9mlkqy0;
+alter table actividad drop column actividades_anio;
+alter table actividad add constraint fk_actividad_temporada foreign key (temporada) references temporada (anio);
+
+-- Versión para el bloqueo optimista de las actividades
+alter table actividad add column version integer not null default 0;
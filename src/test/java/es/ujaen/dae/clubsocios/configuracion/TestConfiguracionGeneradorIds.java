@@ -0,0 +1,62 @@
+package es.ujaen.dae.clubsocios.configuracion;
+
+import com.zaxxer.hikari.HikariDataSource;
+import es.ujaen.dae.clubsocios.app.ClubSocios;
+import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.repositorios.RepositorioActividades;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles("test")
+@SpringBootTest(classes = ClubSocios.class)
+public class TestConfiguracionGeneradorIds {
+    @Autowired
+    private ConfiguracionGeneradorIds.ReservaIds reservaIds;
+    @Autowired
+    private DataSource dataSource;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private RepositorioActividades repositorioActividades;
+
+    @Test
+    @DirtiesContext
+    public void testReservaSoloParaIds() {
+        HikariDataSource reserva = reservaIds.pool();
+
+        //Las conexiones que se piden al origen de datos dentro de una transacción son del pool principal
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            try (Connection conexion = dataSource.getConnection()) {
+                assertThat(conexion).isNotNull();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(reserva.getHikariPoolMXBean()).isNull();
+
+        //La reserva del bloque de ids de una actividad nueva sí usa el pool de reserva
+        int siguiente = new JdbcTemplate(dataSource).queryForObject(
+                "select siguiente from generador_ids where entidad = 'actividad'", Integer.class);
+        Actividad actividad = repositorioActividades.guardarActividad(new Actividad("Actividad", "Descripción", 10, 10,
+                LocalDate.now(), LocalDate.now().plusDays(2), LocalDate.now().plusDays(10)));
+        assertThat(reserva.getHikariPoolMXBean()).isNotNull();
+        assertThat(reserva.getHikariPoolMXBean().getTotalConnections()).isPositive();
+
+        //El id es el primero del bloque reservado y la tabla guarda el primero del siguiente
+        assertThat(actividad.getId()).isEqualTo(siguiente);
+        assertThat(new JdbcTemplate(dataSource).queryForObject(
+                "select siguiente from generador_ids where entidad = 'actividad'", Integer.class)).isEqualTo(siguiente + 50);
+    }
+}
@@ -0,0 +1,76 @@
+package es.ujaen.dae.clubsocios.configuracion;
+
+import es.ujaen.dae.clubsocios.app.ClubSocios;
+import es.ujaen.dae.clubsocios.entidades.Socio;
+import es.ujaen.dae.clubsocios.repositorios.RepositorioSocios;
+import es.ujaen.dae.clubsocios.servicios.ServicioClub;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ActiveProfiles("test")
+@SpringBootTest(classes = ClubSocios.class, properties = {
+        "clubsocios.replica.url=" + TestConfiguracionReplica.URL_REPLICA,
+        "clubsocios.replica.username=sa",
+        "clubsocios.replica.password="})
+public class TestConfiguracionReplica {
+
+    // Segunda base de datos H2 que hace de réplica de la principal
+    static final String URL_REPLICA = "jdbc:h2:mem:clubsocios_replica;MODE=MYSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static JdbcTemplate replica;
+
+    @Autowired
+    private ServicioClub servicioClub;
+    @Autowired
+    private RepositorioSocios repositorioSocios;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    /**
+     * @brief Crea el esquema de la réplica, que en producción llegaría por la replicación
+     */
+    @BeforeAll
+    static void migrarReplica() {
+        DriverManagerDataSource origen = new DriverManagerDataSource(URL_REPLICA, "sa", "");
+        Flyway flyway = Flyway.configure().dataSource(origen).cleanDisabled(false).load();
+        flyway.clean();
+        flyway.migrate();
+        replica = new JdbcTemplate(origen);
+    }
+
+    @Test
+    @DirtiesContext
+    public void testEnrutadoTransacciones() {
+        //Las escrituras van a la base de datos principal
+        servicioClub.crearSocio(new Socio("Socio", "Principal", "principal@club.com", "621302025", "clave"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM socio", Integer.class));
+        assertEquals(0, replica.queryForObject("SELECT count(*) FROM socio", Integer.class));
+
+        //Simulamos que a la réplica le ha llegado otro socio que aún no está en la principal
+        replica.update("INSERT INTO socio (nombre, apellidos, email, telefono, clave, cuota_pagada) VALUES (?, ?, ?, ?, ?, ?)",
+                "Socio", "Replica", "replica@club.com", "621302025", "clave", false);
+
+        //Las transacciones de solo lectura leen de la réplica
+        assertThat(repositorioSocios.buscarTodos()).extracting(Socio::getEmail).containsExactly("replica@club.com");
+
+        //Una lectura dentro de una transacción de lectura y escritura se queda en la principal
+        List<Socio> socios = new TransactionTemplate(transactionManager).execute(estado -> repositorioSocios.buscarTodos());
+        assertThat(socios).extracting(Socio::getEmail).containsExactly("principal@club.com");
+    }
+}
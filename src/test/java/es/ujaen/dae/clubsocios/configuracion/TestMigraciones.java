@@ -0,0 +1,109 @@
+package es.ujaen.dae.clubsocios.configuracion;
+
+import es.ujaen.dae.clubsocios.app.ClubSocios;
+import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.servicios.ServicioClub;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class TestMigraciones {
+
+    // Base de datos H2 propia, para migrar paso a paso sin afectar a la de los demás tests
+    static final String URL = "jdbc:h2:mem:clubsocios_migraciones;MODE=MYSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private DriverManagerDataSource origen;
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * @brief Deja la base de datos con el esquema inicial, como la de producción antes de las migraciones
+     */
+    @BeforeEach
+    void crearEsquemaInicial() {
+        origen = new DriverManagerDataSource(URL, "sa", "");
+        Flyway flyway = Flyway.configure().dataSource(origen).cleanDisabled(false).target("1").load();
+        flyway.clean();
+        flyway.migrate();
+        jdbcTemplate = new JdbcTemplate(origen);
+    }
+
+    private void migrar() {
+        Flyway.configure().dataSource(origen).load().migrate();
+    }
+
+    @Test
+    public void testMigracionConservaTemporadas() {
+        jdbcTemplate.update("INSERT INTO temporada (anio) VALUES (2023), (2024)");
+        jdbcTemplate.update("INSERT INTO actividad (id, titulo, descripcion, precio, plazas, plazas_ocupadas, fecha_inicio_inscripcion, " +
+                "fecha_fin_inscripcion, fecha_celebracion, actividades_anio) VALUES " +
+                "(1, 'Senderismo', 'Ruta', 10, 20, 0, '2023-01-01', '2023-01-10', '2023-01-20', 2023), " +
+                "(2, 'Escalada', 'Rocódromo', 10, 20, 0, '2024-01-01', '2024-01-10', '2024-01-20', 2024)");
+
+        migrar();
+
+        //Cada actividad sigue en su temporada y empieza en la versión 0
+        assertEquals(2023, jdbcTemplate.queryForObject("SELECT temporada FROM actividad WHERE id = 1", Integer.class));
+        assertEquals(2024, jdbcTemplate.queryForObject("SELECT temporada FROM actividad WHERE id = 2", Integer.class));
+        assertThat(jdbcTemplate.queryForList("SELECT version FROM actividad", Integer.class)).containsOnly(0);
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM information_schema.columns " +
+                "WHERE table_name = 'actividad' AND column_name = 'actividades_anio'", Integer.class));
+    }
+
+    @Test
+    public void testMigracionUneSolicitudesDuplicadas() {
+        jdbcTemplate.update("INSERT INTO temporada (anio) VALUES (2024)");
+        jdbcTemplate.update("INSERT INTO socio (nombre, apellidos, email, telefono, clave, cuota_pagada) VALUES " +
+                "('Socio', 'Uno', 'uno@club.com', '621302025', 'clave', true), ('Socio', 'Dos', 'dos@club.com', '621302025', 'clave', true)");
+        jdbcTemplate.update("INSERT INTO actividad (id, titulo, descripcion, precio, plazas, plazas_ocupadas, fecha_inicio_inscripcion, " +
+                "fecha_fin_inscripcion, fecha_celebracion, actividades_anio) VALUES (1, 'Senderismo', 'Ruta', 10, 20, 5, '2024-01-01', '2024-01-10', '2024-01-20', 2024)");
+        //El socio uno tiene tres solicitudes con cuatro plazas aceptadas, pero en la mayor solo caben tres
+        jdbcTemplate.update("INSERT INTO solicitud (id, actividad, socio_email, n_acompanantes, fecha, plazas_aceptadas) VALUES " +
+                "(1, 1, 'uno@club.com', 1, '2024-01-02', 2), (2, 1, 'dos@club.com', 0, '2024-01-02', 1), " +
+                "(3, 1, 'uno@club.com', 2, '2024-01-03', 1), (4, 1, 'uno@club.com', 0, '2024-01-04', 1)");
+
+        migrar();
+
+        assertThat(jdbcTemplate.queryForList("SELECT id FROM solicitud ORDER BY id", Integer.class)).containsExactly(1, 2);
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT n_acompanantes FROM solicitud WHERE id = 1", Integer.class));
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT plazas_aceptadas FROM solicitud WHERE id = 1", Integer.class));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT plazas_aceptadas FROM solicitud WHERE id = 2", Integer.class));
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT plazas_ocupadas FROM actividad WHERE id = 1", Integer.class));
+    }
+
+    @Test
+    public void testIdsContinuanTrasLosExistentes() {
+        LocalDate hoy = LocalDate.now();
+        jdbcTemplate.update("INSERT INTO temporada (anio) VALUES (?)", hoy.getYear());
+        jdbcTemplate.update("INSERT INTO socio (nombre, apellidos, email, telefono, clave, cuota_pagada) VALUES " +
+                "('Socio', 'Uno', 'uno@club.com', '621302025', 'clave', true), ('Socio', 'Dos', 'dos@club.com', '621302025', 'clave', true)");
+        for (int id = 1; id <= 3; id++)
+            jdbcTemplate.update("INSERT INTO actividad (id, titulo, descripcion, precio, plazas, plazas_ocupadas, fecha_inicio_inscripcion, " +
+                            "fecha_fin_inscripcion, fecha_celebracion, actividades_anio) VALUES (?, 'Senderismo', 'Ruta', 10, 20, 0, ?, ?, ?, ?)",
+                    id, hoy.minusDays(1), hoy.plusDays(7), hoy.plusDays(10), hoy.getYear());
+        jdbcTemplate.update("INSERT INTO solicitud (id, actividad, socio_email, n_acompanantes, fecha, plazas_aceptadas) VALUES " +
+                "(1, 1, 'uno@club.com', 0, ?, 0), (2, 2, 'uno@club.com', 0, ?, 0)", hoy, hoy);
+
+        migrar();
+
+        //La aplicación arranca sobre la base de datos migrada y los ids nuevos siguen a los que ya había
+        try (ConfigurableApplicationContext contexto = new SpringApplicationBuilder(ClubSocios.class)
+                .profiles("test")
+                .run("--spring.datasource.url=" + URL, "--spring.datasource.username=sa", "--spring.datasource.password=",
+                        "--spring.flyway.enabled=false", "--server.port=0")) {
+            ServicioClub servicioClub = contexto.getBean(ServicioClub.class);
+            Actividad actividad = new Actividad("Escalada", "Rocódromo", 10, 20, hoy.minusDays(1), hoy.plusDays(7), hoy.plusDays(10));
+            servicioClub.crearActividad(actividad);
+            assertEquals(4, actividad.getId());
+            assertEquals(3, servicioClub.crearSolicitud("dos@club.com", 1, 0).getId());
+        }
+    }
+}
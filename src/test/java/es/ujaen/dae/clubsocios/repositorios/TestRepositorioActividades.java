@@ -2,19 +2,36 @@ package es.ujaen.dae.clubsocios.repositorios;
 
 import es.ujaen.dae.clubsocios.app.ClubSocios;
 import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.entidades.Socio;
+import es.ujaen.dae.clubsocios.entidades.Solicitud;
 import es.ujaen.dae.clubsocios.excepciones.FechaNoValida;
 import es.ujaen.dae.clubsocios.excepciones.NoHayActividades;
+import es.ujaen.dae.clubsocios.excepciones.SolicitudYaRealizada;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @ActiveProfiles("test")
 @SpringBootTest(classes = ClubSocios.class)
@@ -22,6 +39,14 @@ public class TestRepositorioActividades {
 
     @Autowired
     RepositorioActividades repositorioActividades;
+    @Autowired
+    RepositorioSocios repositorioSocios;
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+    @Autowired
+    PlatformTransactionManager transactionManager;
 
     @Test
     @DirtiesContext
@@ -50,7 +75,7 @@ public class TestRepositorioActividades {
     @DirtiesContext
     void TestBuscaTodasActividadesAbiertas() {
         // Comprobamos que se lance la excepción NoHayActividades si no hay actividades abiertas
-        assertThatThrownBy(() -> repositorioActividades.buscaTodasActividadesAbiertas()).isInstanceOf(NoHayActividades.class);
+        assertThatThrownBy(() -> repositorioActividades.buscaTodasActividadesAbiertas(LocalDate.now())).isInstanceOf(NoHayActividades.class);
 
         // Comprobamos que se devuelva una lista con todas las actividades abiertas
         var actividad1 = new Actividad("Actividad 1", "Descripcion 1", 10, 10,
@@ -61,7 +86,7 @@ public class TestRepositorioActividades {
                 LocalDate.now().plusDays(7));
         repositorioActividades.guardarActividad(actividad1);
         repositorioActividades.guardarActividad(actividad2);
-        assertThat(repositorioActividades.buscaTodasActividadesAbiertas()).isNotEmpty();
+        assertThat(repositorioActividades.buscaTodasActividadesAbiertas(LocalDate.now())).isNotEmpty();
 
         // Comprobamos que no se devuelvan actividades cerradas
         var actividadCerrada = new Actividad("ActividadCerrada", "Descripcion Cerrada", 10, 10,
@@ -71,8 +96,8 @@ public class TestRepositorioActividades {
         actividadCerrada.setFechaInicioInscripcion(LocalDate.now().minusDays(5))
                 .setFechaFinInscripcion(LocalDate.now().minusDays(5))
                 .setFechaCelebracion(LocalDate.now().minusDays(5));
-        actividadCerrada = repositorioActividades.actualizar(actividadCerrada);
-        assertThat(repositorioActividades.buscaTodasActividadesAbiertas()).doesNotContain(actividadCerrada);
+        repositorioActividades.modificarFechaActividad(actividadCerrada);
+        assertThat(repositorioActividades.buscaTodasActividadesAbiertas(LocalDate.now())).doesNotContain(actividadCerrada);
     }
 
     @Test
@@ -90,4 +115,192 @@ public class TestRepositorioActividades {
         assertThat(repositorioActividades.buscarPorId(actividad1.getId())).get().isEqualTo(actividad1);
     }
 
-}
\ No newline at end of file
+    @Test
+    @DirtiesContext
+    void testGuardarSolicitud() {
+        var socio = new Socio("nombre", "apellidos", "email@gmail.com", "623456789", "clave");
+        repositorioSocios.guardar(socio);
+        var actividad = new Actividad("Actividad 1", "Descripcion 1", 10, 10,
+                LocalDate.now(), LocalDate.now().plusDays(2),
+                LocalDate.now().plusDays(10));
+        var actividadGuardada = repositorioActividades.guardarActividad(actividad);
+
+        var solicitud = new Solicitud(socio, 2, LocalDate.now());
+        repositorioActividades.guardarSolicitud(actividadGuardada, solicitud);
+        assertThat(repositorioActividades.buscarSolicitud(actividadGuardada.getId(), solicitud.getId())).isPresent();
+
+        // Comprobamos que la restricción de unicidad impida una segunda solicitud del mismo socio
+        assertThatThrownBy(() -> repositorioActividades.guardarSolicitud(actividadGuardada, new Solicitud(socio, 1, LocalDate.now())))
+                .isInstanceOf(SolicitudYaRealizada.class);
+    }
+
+    @Test
+    @DirtiesContext
+    void testIndiceSolicitudes() {
+        var socio = new Socio("nombre", "apellidos", "email@gmail.com", "623456789", "clave", true);
+        var otro = new Socio("nombre", "apellidos", "otro@gmail.com", "623456789", "clave", true);
+        repositorioSocios.guardar(socio);
+        repositorioSocios.guardar(otro);
+        int idActividad = repositorioActividades.guardarActividad(new Actividad("Actividad 1", "Descripcion 1", 10, 10,
+                LocalDate.now(), LocalDate.now().plusDays(2), LocalDate.now().plusDays(10))).getId();
+        var transaccion = new TransactionTemplate(transactionManager);
+
+        int idSolicitud = transaccion.execute(estado -> {
+            Actividad actividad = repositorioActividades.buscarPorId(idActividad).orElseThrow();
+            var solicitud = new Solicitud(socio, 1, LocalDate.now());
+
+            // Comprobamos que una solicitud recién añadida se encuentre por email, pero aún no por id
+            actividad.crearSolicitud(solicitud, LocalDate.now());
+            assertThat(actividad.buscarSolicitudPorEmail(socio.getEmail())).containsSame(solicitud);
+            assertThatThrownBy(() -> actividad.crearSolicitud(new Solicitud(socio, 0, LocalDate.now()), LocalDate.now()))
+                    .isInstanceOf(SolicitudYaRealizada.class);
+
+            // Comprobamos que se encuentre por el id que recibe al persistirse
+            repositorioActividades.guardarSolicitud(actividad, solicitud);
+            assertThat(solicitud.getId()).isPositive();
+            assertThat(actividad.buscarSolicitudPorId(solicitud.getId())).containsSame(solicitud);
+            assertThat(actividad.buscarSolicitudPorId(solicitud.getId() + 1)).isEmpty();
+            return solicitud.getId();
+        });
+
+        transaccion.executeWithoutResult(estado -> {
+            // Comprobamos que el índice se construya a partir de las solicitudes guardadas
+            Actividad actividad = repositorioActividades.buscarPorId(idActividad).orElseThrow();
+            assertThat(actividad.buscarSolicitudPorId(idSolicitud)).get().extracting(Solicitud::getSocio).isEqualTo(socio);
+            actividad.crearSolicitud(new Solicitud(otro, 0, LocalDate.now()), LocalDate.now());
+            assertEquals(2, actividad.getPlazasOcupadas());
+
+            // Comprobamos que una solicitud cancelada deje de encontrarse por id y por email
+            Solicitud cancelada = actividad.cancelarSolicitud(idSolicitud, LocalDate.now());
+            assertThat(actividad.buscarSolicitudPorId(idSolicitud)).isEmpty();
+            assertThat(actividad.buscarSolicitudPorEmail(socio.getEmail())).isEmpty();
+            assertThat(actividad.buscarSolicitudPorEmail(otro.getEmail())).isPresent();
+            assertThat(actividad.getSolicitudes()).doesNotContain(cancelada);
+            assertEquals(1, actividad.getPlazasOcupadas());
+            estado.setRollbackOnly();
+        });
+    }
+
+    @Test
+    @DirtiesContext
+    void testBuscarSolicitudParaActualizar() throws Exception {
+        var socio = new Socio("nombre", "apellidos", "email@gmail.com", "623456789", "clave");
+        repositorioSocios.guardar(socio);
+        var actividad = repositorioActividades.guardarActividad(new Actividad("Actividad 1", "Descripcion 1", 10, 10,
+                LocalDate.now(), LocalDate.now().plusDays(2), LocalDate.now().plusDays(10)));
+        var solicitud = new Solicitud(socio, 0, LocalDate.now());
+        repositorioActividades.guardarSolicitud(actividad, solicitud);
+
+        ExecutorService otraTransaccion = Executors.newSingleThreadExecutor();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+                Solicitud bloqueada = repositorioActividades.buscarSolicitudParaActualizar(actividad.getId(), solicitud.getId()).orElseThrow();
+                assertEquals(socio.getEmail(), bloqueada.getSocio().getEmail());
+
+                // Comprobamos que la fila del socio siga libre mientras la de la actividad queda bloqueada
+                Future<Integer> actualizarSocio = otraTransaccion.submit(() ->
+                        jdbcTemplate.update("UPDATE socio SET telefono = '611111111' WHERE email = ?", socio.getEmail()));
+                assertThatCode(() -> actualizarSocio.get(5, TimeUnit.SECONDS)).doesNotThrowAnyException();
+                Future<Integer> actualizarActividad = otraTransaccion.submit(() ->
+                        jdbcTemplate.update("UPDATE actividad SET precio = 20 WHERE id = ?", actividad.getId()));
+                assertThatThrownBy(() -> actualizarActividad.get(500, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+            });
+        } finally {
+            otraTransaccion.shutdown();
+            assertTrue(otraTransaccion.awaitTermination(15, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    @DirtiesContext
+    void testGuardarSolicitudes() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        var actividad = repositorioActividades.guardarActividad(new Actividad("Actividad 1", "Descripcion 1", 10, 200,
+                LocalDate.now(), LocalDate.now().plusDays(2), LocalDate.now().plusDays(10)));
+        List<Solicitud> solicitudes = solicitudesNuevas(actividad, 120);
+
+        // Comprobamos que las inserciones se agrupen en lotes: tres sentencias preparadas para 120 solicitudes,
+        // sin consultar sus socios ni su actividad
+        estadisticas.clear();
+        repositorioActividades.guardarSolicitudes(solicitudes);
+        assertEquals(120, estadisticas.getEntityInsertCount());
+        assertEquals(3, estadisticas.getPrepareStatementCount());
+        assertEquals(120, jdbcTemplate.queryForObject("SELECT count(*) FROM solicitud WHERE actividad = ?", Integer.class, actividad.getId()));
+
+        // Los ids se reservan en bloques consecutivos
+        assertThat(solicitudes).extracting(Solicitud::getId).doesNotHaveDuplicates();
+        assertEquals(119, solicitudes.get(119).getId() - solicitudes.get(0).getId());
+
+        // Comprobamos que una solicitud repetida anule la importación
+        List<Solicitud> repetidas = solicitudesNuevas(actividad, 1);
+        assertThatThrownBy(() -> repositorioActividades.guardarSolicitudes(repetidas)).isInstanceOf(SolicitudYaRealizada.class);
+        assertEquals(120, jdbcTemplate.queryForObject("SELECT count(*) FROM solicitud WHERE actividad = ?", Integer.class, actividad.getId()));
+
+        // Un socio o una actividad que no existen no se confunden con una solicitud repetida
+        Solicitud sinSocio = new Solicitud(new Socio("nombre", "apellidos", "noexiste@gmail.com", "623456789", "clave"), 0, LocalDate.now());
+        sinSocio.setActividad(actividad);
+        assertThatThrownBy(() -> repositorioActividades.guardarSolicitudes(List.of(sinSocio)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+        Solicitud sinActividad = solicitudesNuevas(actividad, 121).get(120);
+        sinActividad.setActividad(new Actividad(actividad.getId() + 1000, "Actividad", "Descripcion", 10, 10, 0,
+                LocalDate.now(), LocalDate.now().plusDays(2), LocalDate.now().plusDays(10)));
+        assertThatThrownBy(() -> repositorioActividades.guardarSolicitudes(List.of(sinActividad)))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    /**
+     * @brief Crea n solicitudes sin guardar de la actividad, cada una de un socio distinto
+     */
+    private List<Solicitud> solicitudesNuevas(Actividad actividad, int n) {
+        List<Object[]> socios = new ArrayList<>();
+        List<Solicitud> solicitudes = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Socio socio = new Socio("nombre", "apellidos", "socio" + i + "@club.com", "623456789", "clave");
+            if (repositorioSocios.buscar(socio.getEmail()).isEmpty())
+                socios.add(new Object[]{socio.getNombre(), socio.getApellidos(), socio.getEmail(), socio.getTelefono(), socio.getClave(), false});
+            Solicitud solicitud = new Solicitud(socio, 0, LocalDate.now());
+            solicitud.setActividad(actividad);
+            solicitudes.add(solicitud);
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO socio (nombre, apellidos, email, telefono, clave, cuota_pagada) VALUES (?, ?, ?, ?, ?, ?)", socios);
+        return solicitudes;
+    }
+
+    @Test
+    @DirtiesContext
+    void testPlanesConsultas() {
+        LocalDate hoy = LocalDate.now();
+
+        // Actividades abiertas
+        assertThat(plan("SELECT a.id FROM actividad a WHERE a.fecha_inicio_inscripcion <= ? AND a.fecha_fin_inscripcion > ?", hoy, hoy))
+                .contains("idx_actividad_inscripcion");
+
+        // Actividades cerradas pendientes de la asignación automática de plazas
+        assertThat(plan("SELECT a.id FROM actividad a WHERE a.plazas_asignadas = false AND a.fecha_fin_inscripcion < ? AND a.id > ? ORDER BY a.id", hoy, 0))
+                .contains("idx_actividad_pendientes");
+
+        // Comprobación de solicitud duplicada
+        assertThat(plan("SELECT count(s.id) FROM solicitud s WHERE s.actividad = ? AND s.socio_email = ?", 1, "email@gmail.com"))
+                .contains("uk_solicitud_actividad_socio");
+
+        // Actividades de una temporada, solicitudes de una actividad y solicitudes de un socio.
+        // En H2 el índice de la clave ajena ya está ordenado por id, así que puede usarse en lugar del índice compuesto.
+        assertThat(plan("SELECT a.id FROM actividad a WHERE a.temporada = ? AND a.id > ? ORDER BY a.id", hoy.getYear(), 0))
+                .doesNotContain("tableScan");
+        assertThat(plan("SELECT s.id FROM solicitud s WHERE s.actividad = ? AND s.id > ? ORDER BY s.id", 1, 0))
+                .doesNotContain("tableScan");
+        assertThat(plan("SELECT s.id FROM solicitud s WHERE s.socio_email = ?", "email@gmail.com"))
+                .doesNotContain("tableScan");
+
+        // Sin índice, H2 recorre la tabla completa
+        assertThat(plan("SELECT a.id FROM actividad a WHERE a.precio = ?", 10))
+                .contains("tableScan");
+    }
+
+    /**
+     * @brief Devuelve el plan de ejecución de H2 para una consulta
+     */
+    private String plan(String consulta, Object... parametros) {
+        return jdbcTemplate.queryForObject("EXPLAIN " + consulta, String.class, parametros);
+    }
+}
@@ -1,15 +1,28 @@
 package es.ujaen.dae.clubsocios.repositorios;
 
 import es.ujaen.dae.clubsocios.app.ClubSocios;
+import es.ujaen.dae.clubsocios.configuracion.ConfiguracionCache;
 import es.ujaen.dae.clubsocios.entidades.Socio;
 import es.ujaen.dae.clubsocios.excepciones.SocioYaRegistrado;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceContext;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -20,6 +33,14 @@ import static org.junit.jupiter.api.Assertions.*;
 public class TestRepositorioSocios {
     @Autowired
     private RepositorioSocios repositorioSocios;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @PersistenceContext
+    private EntityManager em;
 
     @Test
     @DirtiesContext
@@ -73,4 +94,68 @@ public class TestRepositorioSocios {
         assertFalse(repositorioSocios.buscar(socio4.getEmail()).get().isCuotaPagada());
 
     }
+
+    @Test
+    @DirtiesContext
+    public void testCacheSocios() {
+        CacheRegionStatistics cache = entityManagerFactory.unwrap(SessionFactory.class).getStatistics()
+                .getDomainDataRegionStatistics(ConfiguracionCache.SOCIOS);
+        Socio socio = new Socio("nombre", "apellidos", "email@gmail.com", "623456789", "clave");
+        repositorioSocios.guardar(socio);
+
+        //Comprobamos que el socio guardado se sirva desde la caché
+        long aciertos = cache.getHitCount();
+        assertThat(repositorioSocios.buscar(socio.getEmail())).isPresent();
+        assertEquals(aciertos + 1, cache.getHitCount());
+
+        //Comprobamos que la caché refleje los cambios en la cuota
+        repositorioSocios.marcarCuotaPagada(socio);
+        assertTrue(repositorioSocios.buscar(socio.getEmail()).get().isCuotaPagada());
+        repositorioSocios.marcarTodasCuotasNoPagadas();
+        assertFalse(repositorioSocios.buscar(socio.getEmail()).get().isCuotaPagada());
+    }
+
+    @Test
+    @DirtiesContext
+    public void testBuscarTodosSoloLectura() {
+        repositorioSocios.guardar(new Socio("nombre", "apellidos", "email@gmail.com", "623456789", "clave"));
+
+        //Aunque se busquen dentro de una transacción de lectura y escritura, los socios se cargan como solo lectura
+        //y sus cambios no se escriben al confirmar
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> {
+            Socio socio = repositorioSocios.buscarTodos().get(0);
+            assertTrue(em.unwrap(Session.class).isReadOnly(socio));
+            socio.setCuotaPagada(true);
+        });
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM socio WHERE cuota_pagada", Integer.class));
+
+        //Las operaciones que modifican socios siguen cargándolos para escritura
+        repositorioSocios.marcarCuotaPagada(new Socio("nombre", "apellidos", "email@gmail.com", "623456789", "clave"));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM socio WHERE cuota_pagada", Integer.class));
+    }
+
+    @Test
+    @DirtiesContext
+    public void testRecorrerTodos() {
+        int nSocios = 1200;
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < nSocios; i++)
+            filas.add(new Object[]{"nombre", "apellidos", String.format("socio%04d@club.com", i), "623456789", "clave", i % 2 == 0});
+        jdbcTemplate.batchUpdate("INSERT INTO socio (nombre, apellidos, email, telefono, clave, cuota_pagada) VALUES (?, ?, ?, ?, ?, ?)", filas);
+
+        //Se recorren todos los socios en orden sin que el contexto de persistencia pase de un lote
+        List<String> emails = new ArrayList<>();
+        AtomicLong maximoEnContexto = new AtomicLong();
+        repositorioSocios.recorrerTodos(socio -> {
+            emails.add(socio.getEmail());
+            maximoEnContexto.accumulateAndGet(em.unwrap(Session.class).getStatistics().getEntityCount(), Math::max);
+        });
+        assertEquals(nSocios, emails.size());
+        assertEquals("socio0000@club.com", emails.get(0));
+        assertEquals("socio1199@club.com", emails.get(nSocios - 1));
+        assertThat(maximoEnContexto.get()).isLessThanOrEqualTo(500);
+
+        //Los socios recorridos no se guardan en la caché de segundo nivel
+        assertFalse(entityManagerFactory.getCache().contains(Socio.class, "socio0000@club.com"));
+    }
 }
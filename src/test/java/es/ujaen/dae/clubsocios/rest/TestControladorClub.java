@@ -1,25 +1,34 @@
 package es.ujaen.dae.clubsocios.rest;
 
+import es.ujaen.dae.clubsocios.metricas.MetricasClub;
+import es.ujaen.dae.clubsocios.repositorios.RepositorioActividades;
 import es.ujaen.dae.clubsocios.rest.dto.*;
 import jakarta.annotation.PostConstruct;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.net.URI;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest(classes = es.ujaen.dae.clubsocios.app.ClubSocios.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles(profiles = {"test"})
+@AutoConfigureObservability(tracing = false)
 public class TestControladorClub {
 
     @LocalServerPort
@@ -28,6 +37,10 @@ public class TestControladorClub {
     TestRestTemplate restTemplate;
     @Autowired
     private Mapeador mapeador;
+    @Autowired
+    private MetricasClub metricasClub;
+    @Autowired
+    private RepositorioActividades repositorioActividades;
 
     /*
      * Crear el RestTemplateBuilder para poder hacer las peticiones al servidor
@@ -58,6 +71,68 @@ public class TestControladorClub {
         assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
     }
 
+    @Test
+    @DirtiesContext
+    void testBuscarSocios() {
+        DTOSocio socio = new DTOSocio("María", "García López", "maria@club.com", "612345678", "password123");
+        restTemplate.postForEntity("/socios", socio, Void.class);
+        restTemplate.postForEntity("/socios", new DTOSocio("Socio", "Prueba", "socio@club.com", "612345678", "password123"), Void.class);
+
+        //Solo la dirección puede buscar socios
+        assertThat(restTemplate.getForEntity("/socios?q={q}", DTOSocio[].class, "garc").getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(restTemplate.withBasicAuth(socio.email(), socio.clave()).getForEntity("/socios?q={q}", DTOSocio[].class, "garc")
+                .getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+        //Búsqueda por el comienzo de una palabra de los apellidos, sin devolver la clave
+        var respuesta = restTemplate.withBasicAuth("admin@club.com", "admin").getForEntity("/socios?q={q}", DTOSocio[].class, "LOP");
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(respuesta.getBody()).extracting(DTOSocio::email).containsExactly("maria@club.com");
+        assertThat(respuesta.getBody()[0].clave()).isEmpty();
+    }
+
+    @Test
+    @DirtiesContext
+    void testExportaciones() {
+        restTemplate.postForEntity("/socios", new DTOSocio("María", "García, López", "maria@club.com", "612345678", "password123"), Void.class);
+        restTemplate.postForEntity("/socios", new DTOSocio("Socio", "Prueba", "socio@club.com", "612345678", "password123"), Void.class);
+        var direccion = restTemplate.withBasicAuth("admin@club.com", "admin");
+        direccion.postForEntity("/actividades", new DTOActividad(0, "Senderismo", "Ruta", 10, 20, 0,
+                LocalDate.now(), LocalDate.now().plusDays(7), LocalDate.now().plusDays(10)), Void.class);
+        int idActividad = restTemplate.getForEntity("/actividades?anio={anio}", DTOActividad[].class, LocalDate.now().getYear()).getBody()[0].id();
+        restTemplate.postForEntity("/actividades/{id}/solicitudes", new DTOSolicitud(0, 2, LocalDate.now(), 0, "maria@club.com"), DTOSolicitud.class, idActividad);
+        restTemplate.postForEntity("/actividades/{id}/solicitudes", new DTOSolicitud(0, 0, LocalDate.now(), 0, "socio@club.com"), DTOSolicitud.class, idActividad);
+
+        //Solo la dirección puede exportar
+        assertThat(restTemplate.getForEntity("/exportacion/socios", String.class).getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(restTemplate.withBasicAuth("socio@club.com", "password123").getForEntity("/exportacion/socios", String.class)
+                .getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+        //Socios en CSV, con cabecera y los campos con comas entre comillas
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.setAccept(List.of(MediaType.parseMediaType("text/csv")));
+        var csv = direccion.exchange("/exportacion/socios", HttpMethod.GET, new HttpEntity<>(cabeceras), String.class);
+        assertThat(csv.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(csv.getHeaders().getContentType().isCompatibleWith(MediaType.parseMediaType("text/csv"))).isTrue();
+        assertThat(csv.getBody().split("\r\n")).containsExactly(
+                "email,nombre,apellidos,tlf,cuotaPagada",
+                "maria@club.com,María,\"García, López\",612345678,false",
+                "socio@club.com,Socio,Prueba,612345678,false");
+
+        //Solicitudes de la temporada en NDJSON, una por línea
+        cabeceras.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        var ndjson = direccion.exchange("/exportacion/temporadas/{anio}/solicitudes", HttpMethod.GET, new HttpEntity<>(cabeceras), String.class,
+                LocalDate.now().getYear());
+        assertThat(ndjson.getStatusCode()).isEqualTo(HttpStatus.OK);
+        String[] lineas = ndjson.getBody().split("\n");
+        assertThat(lineas).hasSize(2);
+        assertThat(lineas[0]).contains("\"idActividad\":" + idActividad, "\"tituloActividad\":\"Senderismo\"", "\"emailSocio\":\"maria@club.com\"", "\"nAcompanantes\":2");
+        assertThat(lineas[1]).contains("\"emailSocio\":\"socio@club.com\"");
+
+        //Una temporada sin actividades no tiene solicitudes
+        assertThat(direccion.exchange("/exportacion/temporadas/{anio}/solicitudes", HttpMethod.GET, new HttpEntity<>(cabeceras), String.class,
+                LocalDate.now().getYear() + 1).getBody()).isNull();
+    }
+
     @Test
     @DirtiesContext
     void testLoginSocio() {
@@ -348,6 +423,159 @@ public class TestControladorClub {
                 actividadGuardada.id());
         assertThat(respuestaConsulta.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(respuestaConsulta.getBody()).hasSize(2);
+        assertThat(respuestaConsulta.getHeaders().containsKey(HttpHeaders.LINK)).isFalse();
+
+        //En páginas de una solicitud, la primera enlaza con la siguiente
+        var primeraPagina = restTemplate.getForEntity(
+                "/actividades/{id}/solicitudes?tam=1",
+                DTOSolicitud[].class,
+                actividadGuardada.id());
+        assertThat(primeraPagina.getBody()).hasSize(1);
+        assertThat(primeraPagina.getHeaders().getFirst(HttpHeaders.LINK))
+                .endsWith("/solicitudes?despues=" + primeraPagina.getBody()[0].id() + "&tam=1>; rel=\"next\"");
     }
-}
 
+    @Test
+    @DirtiesContext
+    void testActividadesPaginadas() {
+        //Creación de tres actividades
+        for (int i = 1; i <= 3; i++) {
+            var actividad = new DTOActividad(0, "Actividad " + i, "Actividad de prueba", 10,
+                    10, 0, LocalDate.now(), LocalDate.now().plusDays(7), LocalDate.now().plusDays(10));
+            var respuesta = restTemplate.postForEntity("/actividades", actividad, DTOActividad.class);
+            assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        }
+
+        //Primera página de dos actividades
+        var primeraPagina = restTemplate.getForEntity(
+                "/actividades?anio={anio}&tam={tam}",
+                DTOActividad[].class,
+                LocalDate.now().getYear(), 2);
+        assertThat(primeraPagina.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(primeraPagina.getBody()).hasSize(2);
+
+        //Segunda página, a partir de la última actividad de la primera
+        var segundaPagina = restTemplate.getForEntity(
+                "/actividades?anio={anio}&tam={tam}&despues={despues}",
+                DTOActividad[].class,
+                LocalDate.now().getYear(), 2, primeraPagina.getBody()[1].id());
+        assertThat(segundaPagina.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(segundaPagina.getBody()).hasSize(1);
+        assertThat(segundaPagina.getBody()[0].titulo()).isEqualTo("Actividad 3");
+
+        //La primera página enlaza con la segunda; la segunda, incompleta, es la última
+        assertThat(primeraPagina.getHeaders().getFirst(HttpHeaders.LINK))
+                .endsWith("/club/actividades?anio=" + LocalDate.now().getYear() + "&despues=" + primeraPagina.getBody()[1].id() + "&tam=2>; rel=\"next\"");
+        var siguiente = restTemplate.getForEntity(
+                URI.create(primeraPagina.getHeaders().getFirst(HttpHeaders.LINK).replaceAll("^<(.*)>; rel=\"next\"$", "$1")),
+                DTOActividad[].class);
+        assertThat(siguiente.getBody()).containsExactly(segundaPagina.getBody());
+        assertThat(segundaPagina.getHeaders().containsKey(HttpHeaders.LINK)).isFalse();
+
+        //Sin parámetros de paginación, una temporada con menos actividades que el tamaño por defecto cabe en una página
+        var porDefecto = restTemplate.getForEntity("/actividades?anio={anio}", DTOActividad[].class, LocalDate.now().getYear());
+        assertThat(porDefecto.getBody()).hasSize(3);
+        assertThat(porDefecto.getHeaders().containsKey(HttpHeaders.LINK)).isFalse();
+
+        //Listado completo en formato NDJSON, una actividad por línea
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        var respuestaNdjson = restTemplate.exchange(
+                "/actividades?anio={anio}",
+                HttpMethod.GET,
+                new HttpEntity<>(cabeceras),
+                String.class,
+                LocalDate.now().getYear());
+        assertThat(respuestaNdjson.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(respuestaNdjson.getBody().lines()).hasSize(3);
+
+        //Sin indicar formato se sigue devolviendo JSON
+        cabeceras.setAccept(List.of(MediaType.ALL));
+        var respuestaJson = restTemplate.exchange(
+                "/actividades?anio={anio}",
+                HttpMethod.GET,
+                new HttpEntity<>(cabeceras),
+                String.class,
+                LocalDate.now().getYear());
+        assertThat(respuestaJson.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    @DirtiesContext
+    void testAsignarPlazas() {
+        var actividad = new DTOActividad(0, "Actividad de prueba", "Actividad de prueba", 10,
+                10, 0, LocalDate.now(), LocalDate.now().plusDays(7), LocalDate.now().plusDays(10));
+        assertThat(restTemplate.postForEntity("/actividades", actividad, DTOActividad.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        var socio = new DTOSocio("Socio", "Prueba", "socio@club.com", "621302025", "password123");
+        assertThat(restTemplate.postForEntity("/socios", socio, Void.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        int idActividad = restTemplate.getForEntity("/actividades?anio={anio}", DTOActividad[].class,
+                LocalDate.now().getYear()).getBody()[0].id();
+        var solicitud = restTemplate.postForEntity("/actividades/{id}/solicitudes",
+                new DTOSolicitud(0, 2, LocalDate.now(), 0, socio.email()), DTOSolicitud.class, idActividad).getBody();
+
+        //Cerramos el periodo de inscripción
+        repositorioActividades.modificarFechaActividad(repositorioActividades.buscarPorId(idActividad).get()
+                .setFechaInicioInscripcion(LocalDate.now().minusDays(2))
+                .setFechaFinInscripcion(LocalDate.now().minusDays(1)));
+
+        //Solo la dirección puede asignar plazas
+        var plazas = Map.of(solicitud.id(), 3);
+        assertThat(restTemplate.postForEntity("/actividades/{id}/plazas", plazas, DTOSolicitud[].class, idActividad)
+                .getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(restTemplate.withBasicAuth(socio.email(), "password123").postForEntity("/actividades/{id}/plazas", plazas, DTOSolicitud[].class, idActividad)
+                .getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+
+        var direccion = restTemplate.withBasicAuth("admin@club.com", "admin");
+        var respuesta = direccion.postForEntity("/actividades/{id}/plazas", plazas, DTOSolicitud[].class, idActividad);
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(respuesta.getBody()[0].plazasAceptadas()).isEqualTo(3);
+
+        //Más plazas de las solicitudes y solicitudes que no existen
+        assertThat(direccion.postForEntity("/actividades/{id}/plazas", Map.of(solicitud.id(), 1), DTOSolicitud[].class, idActividad)
+                .getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.setContentType(MediaType.APPLICATION_JSON);
+        assertThat(direccion.postForEntity("/actividades/{id}/plazas", new HttpEntity<>("{\"" + solicitud.id() + "\": null}", cabeceras),
+                DTOSolicitud[].class, idActividad).getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+        assertThat(direccion.postForEntity("/actividades/{id}/plazas", Map.of(9999, 1), DTOSolicitud[].class, idActividad)
+                .getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    @DirtiesContext
+    void testMetricas() {
+        var actividad = new DTOActividad(0, "Actividad de prueba", "Actividad de prueba", 10,
+                10, 0, LocalDate.now(), LocalDate.now().plusDays(7), LocalDate.now().plusDays(10));
+        assertThat(restTemplate.postForEntity("/actividades", actividad, DTOActividad.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        var socio = new DTOSocio("Socio", "Prueba", "socio@club.com", "621302025", "password123");
+        assertThat(restTemplate.postForEntity("/socios", socio, Void.class).getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        int idActividad = restTemplate.getForEntity("/actividades?anio={anio}", DTOActividad[].class,
+                LocalDate.now().getYear()).getBody()[0].id();
+
+        //Una solicitud aceptada y otra repetida
+        var solicitud = new DTOSolicitud(0, 1, LocalDate.now(), 0, socio.email());
+        assertThat(restTemplate.postForEntity("/actividades/{id}/solicitudes", solicitud, DTOSolicitud.class, idActividad)
+                .getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(restTemplate.postForEntity("/actividades/{id}/solicitudes", solicitud, DTOSolicitud.class, idActividad)
+                .getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        metricasClub.actualizarPlazas();
+
+        //Las métricas solo son accesibles para la dirección
+        var actuator = new TestRestTemplate(new RestTemplateBuilder().rootUri("http://localhost:" + localPort + "/actuator"));
+        assertThat(actuator.getForEntity("/prometheus", String.class).getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        assertThat(actuator.getForEntity("/health", String.class).getStatusCode()).isEqualTo(HttpStatus.OK);
+
+        var respuesta = actuator.withBasicAuth("admin@club.com", "admin").getForEntity("/prometheus", String.class);
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(respuesta.getBody())
+                .contains("club_operaciones_seconds_count{operacion=\"crearSolicitud\",resultado=\"ok\"} 1")
+                .contains("club_operaciones_seconds_count{operacion=\"crearSolicitud\",resultado=\"SolicitudYaRealizada\"} 1")
+                .contains("club_actividad_plazas_libres{actividad=\"" + idActividad + "\"} 10")
+                .contains("club_actividad_plazas_ocupadas{actividad=\"" + idActividad + "\"} 0")
+                .contains("club_cache_segundo_nivel_aciertos")
+                .contains("cache_gets_total{cache=\"socios\",result=\"hit\"}")
+                .contains("club_indice_socios_fallos_total 0")
+                .doesNotContain("operacion=\"buscarActividadesAbiertas\"")
+                .contains("hibernate_query_executions_total");
+    }
+}
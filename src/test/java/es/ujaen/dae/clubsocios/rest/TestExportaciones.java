@@ -0,0 +1,136 @@
+package es.ujaen.dae.clubsocios.rest;
+
+import es.ujaen.dae.clubsocios.entidades.Actividad;
+import es.ujaen.dae.clubsocios.entidades.Socio;
+import es.ujaen.dae.clubsocios.metricas.MetricasServicioClub;
+import es.ujaen.dae.clubsocios.repositorios.RepositorioActividades;
+import es.ujaen.dae.clubsocios.repositorios.RepositorioSocios;
+import es.ujaen.dae.clubsocios.rest.dto.DTOActividad;
+import es.ujaen.dae.clubsocios.servicios.ServicioClub;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.context.request.async.AsyncRequestTimeoutException;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.awaitility.Awaitility.await;
+
+/*
+ * Respuestas por partes más lentas que el tiempo de espera por defecto de Tomcat para las peticiones asíncronas
+ */
+@SpringBootTest(classes = es.ujaen.dae.clubsocios.app.ClubSocios.class, webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "clubsocios.exportacion.limite=PT3S")
+@ActiveProfiles(profiles = {"test"})
+@Import(TestExportaciones.ConfiguracionExportacionLenta.class)
+@ExtendWith(OutputCaptureExtension.class)
+public class TestExportaciones {
+
+    @LocalServerPort
+    int localPort;
+
+    @Autowired
+    RepositorioSocios repositorioSocios;
+    @Autowired
+    ServicioClub servicioClub;
+    @Autowired
+    MeterRegistry registro;
+
+    @TestConfiguration
+    static class ConfiguracionExportacionLenta {
+        // Cada socio tarda 100 ms en exportarse
+        @Bean
+        @Primary
+        RepositorioSocios repositorioSociosLento() {
+            return new RepositorioSocios() {
+                @Override
+                public void recorrerTodos(Consumer<Socio> accion) {
+                    super.recorrerTodos(socio -> {
+                        LockSupport.parkNanos(Duration.ofMillis(100).toNanos());
+                        accion.accept(socio);
+                    });
+                }
+            };
+        }
+
+        // Cada página de actividades salvo la primera tarda 2 s en leerse
+        @Bean
+        @Primary
+        RepositorioActividades repositorioActividadesLento() {
+            return new RepositorioActividades() {
+                @Override
+                public List<DTOActividad> listarActividadesTemporada(int anio, int despues, int tamPagina) {
+                    if (despues > 0)
+                        LockSupport.parkNanos(Duration.ofSeconds(2).toNanos());
+                    return super.listarActividadesTemporada(anio, despues, tamPagina);
+                }
+            };
+        }
+
+        // Tiempo de espera de las peticiones asíncronas de Tomcat, si la aplicación no fija otro
+        @Bean
+        WebServerFactoryCustomizer<TomcatServletWebServerFactory> esperaAsincronaTomcat() {
+            return fabrica -> fabrica.addConnectorCustomizers(conector -> conector.setAsyncTimeout(1000));
+        }
+    }
+
+    @Test
+    void testExportacionLentaCaduca(CapturedOutput salida) {
+        for (int i = 0; i < 60; i++)
+            repositorioSocios.guardar(new Socio("Socio", "Prueba", "socio" + i + "@club.com", "621302025", "password123"));
+
+        //La respuesta queda incompleta, pero la exportación la corta su tiempo máximo y no el de la petición asíncrona
+        var direccion = new TestRestTemplate(new RestTemplateBuilder().rootUri("http://localhost:" + localPort + "/club"))
+                .withBasicAuth("admin@club.com", "admin");
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.setAccept(List.of(ControladorClub.TEXT_CSV));
+        catchThrowable(() -> direccion.exchange("/exportacion/socios", HttpMethod.GET, new HttpEntity<>(cabeceras), String.class));
+
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> assertThat(registro.find(MetricasServicioClub.OPERACIONES)
+                .tags("operacion", "exportarSocios", "resultado", "ExportacionCaducada").timer()).isNotNull());
+        assertThat(registro.find(MetricasServicioClub.OPERACIONES).tags("operacion", "exportarSocios", "resultado", "ok").timer()).isNull();
+        assertThat(salida.getAll()).doesNotContain(AsyncRequestTimeoutException.class.getSimpleName());
+    }
+
+    @Test
+    void testListadoNdjsonLento(CapturedOutput salida) {
+        LocalDate hoy = LocalDate.now();
+        for (int i = 0; i < 501; i++)
+            servicioClub.crearActividad(new Actividad("Actividad " + i, "Descripción", 10, 20, hoy, hoy.plusDays(7), hoy.plusDays(14)));
+
+        //La segunda página llega después del tiempo de espera de Tomcat, pero la respuesta se completa
+        var restTemplate = new TestRestTemplate(new RestTemplateBuilder().rootUri("http://localhost:" + localPort + "/club"));
+        HttpHeaders cabeceras = new HttpHeaders();
+        cabeceras.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        var respuesta = restTemplate.exchange("/actividades?anio={anio}", HttpMethod.GET, new HttpEntity<>(cabeceras), String.class,
+                hoy.getYear());
+        assertThat(respuesta.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(respuesta.getBody().split("\n")).hasSize(501);
+        assertThat(salida.getAll()).doesNotContain(AsyncRequestTimeoutException.class.getSimpleName());
+    }
+}
@@ -0,0 +1,30 @@
+package es.ujaen.dae.clubsocios.seguridad;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TestCodificadorClavesCache {
+
+    @Test
+    void testVerificacion() {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(4);
+        CodificadorClavesCache codificador = new CodificadorClavesCache(bcrypt, Duration.ofMinutes(5), 100);
+        String claveCodificada = codificador.encode("password123");
+
+        //Comprobamos que se acepte la clave correcta, también cuando ya está en caché
+        assertTrue(codificador.matches("password123", claveCodificada));
+        assertTrue(codificador.matches("password123", claveCodificada));
+
+        //Comprobamos que se rechace una clave incorrecta
+        assertFalse(codificador.matches("wrongpassword", claveCodificada));
+
+        //Comprobamos que al cambiar la clave deje de aceptarse la anterior
+        String nuevaClaveCodificada = codificador.encode("nuevaClave");
+        assertFalse(codificador.matches("password123", nuevaClaveCodificada));
+        assertTrue(codificador.matches("nuevaClave", nuevaClaveCodificada));
+    }
+}
@@ -4,25 +4,59 @@ import es.ujaen.dae.clubsocios.entidades.Actividad;
 import es.ujaen.dae.clubsocios.entidades.Socio;
 import es.ujaen.dae.clubsocios.entidades.Solicitud;
 import es.ujaen.dae.clubsocios.excepciones.*;
+import es.ujaen.dae.clubsocios.repositorios.RepositorioSocios;
+import es.ujaen.dae.clubsocios.rest.dto.DTOActividad;
+import es.ujaen.dae.clubsocios.rest.dto.DTOSolicitud;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest(classes = es.ujaen.dae.clubsocios.app.ClubSocios.class)
 @ActiveProfiles("test")
+@Import(TestServicioClub.ConfiguracionRelojAjustable.class)
 public class TestServicioClub {
 
     @Autowired
     private ServicioClub servicioClub;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private RelojAjustable reloj;
+    @Autowired
+    private IndiceSocios indiceSocios;
 
     @BeforeEach
     public void setUp() {
@@ -102,6 +136,91 @@ public class TestServicioClub {
         assertEquals(2, servicioClub.buscarTodosSocios(admin).size());
     }
 
+    @Test
+    @DirtiesContext
+    void testBuscarSocios() {
+        Socio admin = servicioClub.login("admin@club.com", "$2a$10$JAfCuJzY1t.zIfTfhX7Zb.ep0zj0J/c4i7LXDa6.cAg0b6ikt94LG");
+        Socio socio = servicioClub.login("socio_prueba@club.com", "password123");
+        servicioClub.crearSocio(new Socio("María José", "García López", "mjgarcia@club.com", "621302025", "password123"));
+        servicioClub.crearSocio(new Socio("Mario", "Gallego", "mario@club.com", "621302025", "password123"));
+
+        //Comprobamos que solo pueda buscar la dirección.
+        assertThatThrownBy(() -> servicioClub.buscarSocios(socio, "mar", 10)).isInstanceOf(OperacionDeDireccion.class);
+
+        //Sin el índice construido se busca en la base de datos, por email, nombre y palabras de los apellidos.
+        //Antes se espera a que acabe la construcción del arranque, para que no vuelva a llenarlo.
+        await().atMost(Duration.ofSeconds(10)).until(indiceSocios::isConstruido);
+        indiceSocios.vaciar();
+        assertEquals(List.of("mario@club.com", "mjgarcia@club.com"), emails(servicioClub.buscarSocios(admin, "MAR", 10)));
+        assertEquals(List.of("mjgarcia@club.com"), emails(servicioClub.buscarSocios(admin, "lóp", 10)));
+        assertEquals(List.of("mario@club.com"), emails(servicioClub.buscarSocios(admin, "mar", 1)));
+        assertEquals(List.of(), emails(servicioClub.buscarSocios(admin, "ma_", 10)));
+
+        //Con el índice, el resultado es el mismo, sin distinguir tildes y en el orden del término que coincide.
+        indiceSocios.construir();
+        assertTrue(indiceSocios.isConstruido());
+        assertEquals(List.of("mjgarcia@club.com", "mario@club.com"), emails(servicioClub.buscarSocios(admin, "MAR", 10)));
+        assertEquals(List.of("mjgarcia@club.com"), emails(servicioClub.buscarSocios(admin, "lop", 10)));
+        assertEquals(List.of("mjgarcia@club.com"), emails(servicioClub.buscarSocios(admin, "maria jose gar", 10)));
+        assertEquals(1, servicioClub.buscarSocios(admin, "mar", 1).size());
+        assertNull(servicioClub.buscarSocios(admin, "mario", 1).get(0).getClave());
+
+        //Los socios nuevos entran en el índice al crearse.
+        servicioClub.crearSocio(new Socio("Marta", "Ruiz", "marta@club.com", "621302025", "password123"));
+        assertEquals(List.of("marta@club.com"), emails(servicioClub.buscarSocios(admin, "mart", 10)));
+    }
+
+    @Test
+    @DirtiesContext
+    void testReintentarConstruccionIndice() {
+        //Un repositorio que falla en la primera consulta, como una base de datos que aún no responde al arrancar
+        IndiceSocios indice = new IndiceSocios();
+        indice.reintento = Duration.ofMillis(10);
+        indice.repositorioSocios = new RepositorioSocios() {
+            int consultas;
+
+            @Override
+            public List<Socio> buscarPagina(String despues, int tamPagina) {
+                if (consultas++ == 0)
+                    throw new IllegalStateException("Base de datos no disponible");
+                return List.of(new Socio("Mario", "Gallego", "mario@club.com", "621302025", "password123"));
+            }
+        };
+
+        //El fallo se cuenta y la construcción se reintenta hasta completarse
+        indice.construirEnSegundoPlano();
+        await().atMost(Duration.ofSeconds(10)).until(indice::isConstruido);
+        assertEquals(1, indice.getFallosConstruccion());
+        assertEquals(List.of("mario@club.com"), emails(indice.buscar("mar", 10)));
+        indice.detener();
+    }
+
+    @Test
+    @DirtiesContext
+    void testExportacionConLimite() {
+        Socio admin = servicioClub.login("admin@club.com", "$2a$10$JAfCuJzY1t.zIfTfhX7Zb.ep0zj0J/c4i7LXDa6.cAg0b6ikt94LG");
+        servicioClub.crearSocio(new Socio("Mario", "Gallego", "mario@club.com", "621302025", "password123"));
+        List<String> exportados = new ArrayList<>();
+
+        //Dentro del tiempo máximo se exportan todos los socios.
+        servicioClub.exportarSocios(admin, s -> exportados.add(s.getEmail()));
+        assertEquals(List.of("mario@club.com", "socio_prueba@club.com"), exportados);
+
+        //Con un destino más lento que el tiempo máximo, la exportación se interrumpe tras el primer socio.
+        ServicioClub objetivo = AopTestUtils.getTargetObject(servicioClub);
+        ReflectionTestUtils.setField(objetivo, "limiteExportacion", Duration.ofMillis(50));
+        exportados.clear();
+        assertThatThrownBy(() -> servicioClub.exportarSocios(admin, s -> {
+            exportados.add(s.getEmail());
+            LockSupport.parkNanos(Duration.ofMillis(100).toNanos());
+        })).isInstanceOf(ExportacionCaducada.class);
+        assertEquals(List.of("mario@club.com"), exportados);
+    }
+
+    private static List<String> emails(List<Socio> socios) {
+        return socios.stream().map(Socio::getEmail).toList();
+    }
+
     @Test
     @DirtiesContext
     void testMarcarCuotaPagada() {
@@ -489,6 +608,56 @@ public class TestServicioClub {
         assertThatThrownBy(() -> servicioClub.asignarPlaza(admin, actividadLimitada, solicitudLimitada)).isInstanceOf(NoDisponibilidadPlazas.class);
     }
 
+    @Test
+    @DirtiesContext
+    void testAsignarPlazas() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Socio admin = servicioClub.login("admin@club.com", "$2a$10$JAfCuJzY1t.zIfTfhX7Zb.ep0zj0J/c4i7LXDa6.cAg0b6ikt94LG");
+        Actividad actividad = new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                6, LocalDate.now(), LocalDate.now().plusDays(7),
+                LocalDate.now().plusDays(10));
+        servicioClub.crearActividad(actividad);
+
+        //Cuatro socios sin la cuota pagada, que solicitan plaza para ellos y un acompañante.
+        List<Solicitud> solicitudes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Socio socio = new Socio("Socio", "Prueba", "socio" + i + "@club.com", "621302025", "password123");
+            servicioClub.crearSocio(socio);
+            solicitudes.add(servicioClub.crearSolicitud(socio, actividad, 1));
+        }
+        int s0 = solicitudes.get(0).getId(), s1 = solicitudes.get(1).getId(), s2 = solicitudes.get(2).getId(), s3 = solicitudes.get(3).getId();
+
+        assertThatThrownBy(() -> servicioClub.asignarPlazas(servicioClub.login("socio0@club.com", "password123"), actividad.getId(), Map.of(s0, 1)))
+                .isInstanceOf(OperacionDeDireccion.class);
+        assertThatThrownBy(() -> servicioClub.asignarPlazas(admin, actividad.getId(), Map.of(s0, 1))).isInstanceOf(InscripcionAbierta.class);
+
+        //Cerramos el periodo de inscripción.
+        actividad.setFechaInicioInscripcion(LocalDate.now().minusDays(2));
+        actividad.setFechaFinInscripcion(LocalDate.now().minusDays(1));
+        servicioClub.modificarFechaActividad(actividad);
+
+        //Ninguna asignación se aplica si falla alguna de ellas.
+        assertThatThrownBy(() -> servicioClub.asignarPlazas(admin, actividad.getId(), Map.of(s0, 1, 9999, 1))).isInstanceOf(SolicitudNoExistente.class);
+        assertThatThrownBy(() -> servicioClub.asignarPlazas(admin, actividad.getId(), Map.of(s0, 1, s1, 3))).isInstanceOf(SolicitudNoValida.class);
+        assertThatThrownBy(() -> servicioClub.asignarPlazas(admin, actividad.getId(), Collections.singletonMap(s0, null))).isInstanceOf(SolicitudNoValida.class);
+        assertThatThrownBy(() -> servicioClub.asignarPlazas(admin, actividad.getId(), Map.of(s0, 2, s1, 2, s2, 2, s3, 2))).isInstanceOf(NoDisponibilidadPlazas.class);
+        assertEquals(0, servicioClub.buscarActividadPorId(actividad.getId()).get().getPlazasOcupadas());
+
+        //Actividad bloqueada, solicitudes, actualización de la actividad y un único lote con las de las solicitudes.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        List<Solicitud> actualizadas = servicioClub.asignarPlazas(admin, actividad.getId(), Map.of(s0, 2, s1, 2, s2, 1));
+        assertEquals(4, estadisticas.getPrepareStatementCount());
+        assertEquals(3, actualizadas.size());
+
+        assertEquals(5, servicioClub.buscarActividadPorId(actividad.getId()).get().getPlazasOcupadas());
+        List<Solicitud> guardadas = servicioClub.buscarSolicitudesDeActividad(admin, actividad);
+        assertEquals(List.of(2, 2, 1, 0), guardadas.stream().map(Solicitud::getPlazasAceptadas).toList());
+
+        //Solo queda una plaza libre.
+        assertThatThrownBy(() -> servicioClub.asignarPlazas(admin, actividad.getId(), Map.of(s2, 1, s3, 1))).isInstanceOf(NoDisponibilidadPlazas.class);
+    }
+
     @Test
     @DirtiesContext
     void testQuitarPlaza() {
@@ -520,4 +689,408 @@ public class TestServicioClub {
         Solicitud solicitudActualizada = servicioClub.quitarPlaza(admin, actividad, solicitud);
         assertEquals(0, solicitudActualizada.getPlazasAceptadas());
     }
+
+    @Test
+    @DirtiesContext
+    void testCrearSolicitudConcurrente() throws Exception {
+        int plazas = 100;
+        int nSocios = 1000;
+
+        Actividad actividad = new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                plazas, LocalDate.now(), LocalDate.now().plusDays(7),
+                LocalDate.now().plusDays(10));
+        servicioClub.crearActividad(actividad);
+
+        List<Socio> socios = new ArrayList<>();
+        for (int i = 0; i < nSocios; i++) {
+            Socio socio = new Socio("Socio", "Prueba", "socio" + i + "@club.com", "621302025", "password123", true);
+            servicioClub.crearSocio(socio);
+            socios.add(socio);
+        }
+
+        //Cada socio envía su solicitud dos veces a la vez que el resto de socios.
+        AtomicInteger creadas = new AtomicInteger();
+        AtomicInteger conPlaza = new AtomicInteger();
+        AtomicInteger repetidas = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        List<Future<?>> peticiones = new ArrayList<>();
+        for (int i = 0; i < 2 * nSocios; i++) {
+            Socio socio = socios.get(i % nSocios);
+            peticiones.add(executor.submit(() -> {
+                try {
+                    Solicitud solicitud = servicioClub.crearSolicitud(socio, actividad, 0);
+                    creadas.incrementAndGet();
+                    if (solicitud.getPlazasAceptadas() == 1)
+                        conPlaza.incrementAndGet();
+                } catch (SolicitudYaRealizada e) {
+                    repetidas.incrementAndGet();
+                }
+            }));
+        }
+        for (Future<?> peticion : peticiones)
+            peticion.get();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+
+        //Comprobamos que cada socio tenga una única solicitud.
+        assertEquals(nSocios, creadas.get());
+        assertEquals(nSocios, repetidas.get());
+
+        //Comprobamos que no se hayan asignado más plazas de las que tiene la actividad.
+        assertEquals(plazas, conPlaza.get());
+        assertEquals(plazas, servicioClub.buscarActividadPorId(actividad.getId()).get().getPlazasOcupadas());
+    }
+
+    @Test
+    @DirtiesContext
+    void testConsultasPorOperacion() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Actividad actividad = new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                10, LocalDate.now(), LocalDate.now().plusDays(7),
+                LocalDate.now().plusDays(10));
+        servicioClub.crearActividad(actividad);
+
+        //Se vacía la caché de segundo nivel antes de cada operación para contar las consultas en frío.
+        //El login busca al socio una única vez.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        servicioClub.login("socio_prueba@club.com", "password123");
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+
+        //Crear la solicitud: socio, actividad bloqueada e inserción; el duplicado lo impide la restricción de unicidad.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        Solicitud solicitud = servicioClub.crearSolicitud("socio_prueba@club.com", actividad.getId(), 3);
+        assertEquals(3, estadisticas.getPrepareStatementCount());
+
+        //Modificar la solicitud: solicitud junto con su actividad y actualización.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        servicioClub.modificarSolicitud(actividad.getId(), solicitud.getId(), 5);
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+
+        //Cancelar la solicitud: solicitud junto con su actividad bloqueadas, su socio sin bloquear
+        //(con la caché vacía, desde la base de datos) y borrado.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        servicioClub.cancelarSolicitud(actividad.getId(), solicitud.getId());
+        assertEquals(3, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    @DirtiesContext
+    void testConsultasPlazas() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Socio admin = servicioClub.login("admin@club.com", "$2a$10$JAfCuJzY1t.zIfTfhX7Zb.ep0zj0J/c4i7LXDa6.cAg0b6ikt94LG");
+        LocalDate hoy = LocalDate.now(reloj);
+        Actividad actividad = new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                20, hoy, hoy.plusDays(7), hoy.plusDays(10));
+        Actividad actividadAbierta = new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                20, hoy, hoy.plusDays(30), hoy.plusDays(40));
+        servicioClub.crearActividad(actividad);
+        servicioClub.crearActividad(actividadAbierta);
+
+        //Cinco solicitudes de socios distintos en cada actividad.
+        List<Solicitud> solicitudes = new ArrayList<>();
+        List<Solicitud> solicitudesAbierta = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Socio socio = new Socio("Socio", "Prueba", "socio" + i + "@club.com", "621302025", "password123");
+            servicioClub.crearSocio(socio);
+            solicitudes.add(servicioClub.crearSolicitud(socio, actividad, 2));
+            solicitudesAbierta.add(servicioClub.crearSolicitud(socio, actividadAbierta, 2));
+        }
+        reloj.avanzar(Duration.ofDays(8));
+
+        //Asignar una plaza: solicitud junto con su actividad bloqueadas, su socio sin bloquear y
+        //actualización de ambas, sin cargar el resto de solicitudes.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        assertEquals(1, servicioClub.asignarPlaza(admin, actividad, solicitudes.get(2)).getPlazasAceptadas());
+        assertEquals(4, estadisticas.getPrepareStatementCount());
+        assertEquals(3, estadisticas.getEntityLoadCount());
+
+        //Quitar la plaza: las mismas sentencias.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        assertEquals(0, servicioClub.quitarPlaza(admin, actividad, solicitudes.get(2)).getPlazasAceptadas());
+        assertEquals(4, estadisticas.getPrepareStatementCount());
+        assertEquals(0, servicioClub.buscarActividadPorId(actividad.getId()).get().getPlazasOcupadas());
+
+        //Cancelar una solicitud sin plaza aceptada: solicitud junto con su actividad, su socio y borrado.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        servicioClub.cancelarSolicitud(actividadAbierta.getId(), solicitudesAbierta.get(2).getId());
+        assertEquals(3, estadisticas.getPrepareStatementCount());
+        assertEquals(4, servicioClub.buscarSolicitudesDeActividad(admin, actividadAbierta).size());
+
+        //Una solicitud de otra actividad no se encuentra.
+        assertThatThrownBy(() -> servicioClub.asignarPlaza(admin, actividad, solicitudesAbierta.get(0))).isInstanceOf(SolicitudNoExistente.class);
+    }
+
+    @Test
+    @DirtiesContext
+    void testConsultasTemporadas() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        servicioClub.crearActividad(new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                10, LocalDate.now(), LocalDate.now().plusDays(7),
+                LocalDate.now().plusDays(10)));
+
+        //Los años de las temporadas se obtienen con una única consulta.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        assertEquals(List.of(LocalDate.now().getYear()), servicioClub.buscarAniosTemporadas());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+
+        //Crear una actividad carga la temporada, pero no sus actividades.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        servicioClub.crearActividad(new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                10, LocalDate.now(), LocalDate.now().plusDays(7),
+                LocalDate.now().plusDays(10)));
+        assertEquals(0, estadisticas.getCollectionLoadCount());
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+        assertEquals(2, servicioClub.buscarActividadesTemporada(LocalDate.now().getYear()).size());
+
+        //El listado como DTOs es una única consulta que no carga entidades.
+        estadisticas.clear();
+        List<DTOActividad> dtos = servicioClub.listarActividadesTemporada(LocalDate.now().getYear(), 0, 10);
+        assertEquals(2, dtos.size());
+        assertEquals("Actividad de prueba", dtos.get(0).titulo());
+        assertEquals(1, estadisticas.getPrepareStatementCount());
+        assertEquals(0, estadisticas.getEntityLoadCount());
+        assertTrue(servicioClub.listarActividadesTemporada(LocalDate.now().getYear() + 1, 0, 10).isEmpty());
+    }
+
+    @Test
+    @DirtiesContext
+    void testConsultasListadoSolicitudes() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Socio admin = servicioClub.login("admin@club.com", "$2a$10$JAfCuJzY1t.zIfTfhX7Zb.ep0zj0J/c4i7LXDa6.cAg0b6ikt94LG");
+        Actividad actividad = new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                10, LocalDate.now(), LocalDate.now().plusDays(7),
+                LocalDate.now().plusDays(10));
+        servicioClub.crearActividad(actividad);
+        for (int i = 0; i < 5; i++) {
+            Socio socio = new Socio("Socio", "Prueba", "socio" + i + "@club.com", "621302025", "password123");
+            servicioClub.crearSocio(socio);
+            servicioClub.crearSolicitud(socio, actividad, i);
+        }
+
+        //Las solicitudes se cargan junto con sus socios: la actividad y una consulta, no una por socio.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        List<Solicitud> solicitudes = servicioClub.buscarSolicitudesDeActividad(admin, actividad.getId(), 0, 10);
+        assertEquals(5, solicitudes.size());
+        assertEquals("socio4@club.com", solicitudes.get(4).getSocio().getEmail());
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+
+        //El listado como DTOs no crea ni las solicitudes ni los socios.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        List<DTOSolicitud> dtos = servicioClub.listarSolicitudesDeActividad(admin, actividad.getId(), solicitudes.get(1).getId(), 10);
+        assertEquals(List.of(solicitudes.get(2).getId(), solicitudes.get(3).getId(), solicitudes.get(4).getId()), dtos.stream().map(DTOSolicitud::id).toList());
+        assertEquals("socio4@club.com", dtos.get(2).emailSocio());
+        assertEquals(4, dtos.get(2).nAcompanantes());
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+        assertEquals(1, estadisticas.getEntityLoadCount());
+
+        assertThatThrownBy(() -> servicioClub.listarSolicitudesDeActividad(admin, 0, 0, 10)).isInstanceOf(ActividadNoRegistrada.class);
+    }
+
+    @Test
+    @DirtiesContext
+    void testInsercionesSinActualizaciones() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        //La actividad guarda su temporada al insertarse: una inserción, sin actualizar la clave ajena después.
+        //Las colecciones de la temporada y la actividad no generan sentencias (mappedBy), así que se cuentan
+        //las sentencias preparadas: la temporada y la inserción.
+        entityManagerFactory.getCache().evictAll();
+        estadisticas.clear();
+        Actividad actividad = new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                10, LocalDate.now(), LocalDate.now().plusDays(7),
+                LocalDate.now().plusDays(10));
+        servicioClub.crearActividad(actividad);
+        assertEquals(1, estadisticas.getEntityInsertCount());
+        assertEquals(0, estadisticas.getEntityUpdateCount());
+        assertEquals(2, estadisticas.getPrepareStatementCount());
+
+        //Lo mismo con cada solicitud, que guarda su actividad: socio, actividad bloqueada e inserción.
+        for (int i = 0; i < 3; i++) {
+            Socio socio = new Socio("Socio", "Prueba", "socio" + i + "@club.com", "621302025", "password123");
+            servicioClub.crearSocio(socio);
+            entityManagerFactory.getCache().evictAll();
+            estadisticas.clear();
+            servicioClub.crearSolicitud(socio, actividad, 1);
+            assertEquals(1, estadisticas.getEntityInsertCount());
+            assertEquals(0, estadisticas.getEntityUpdateCount());
+            assertEquals(3, estadisticas.getPrepareStatementCount());
+        }
+        Socio admin = servicioClub.login("admin@club.com", "$2a$10$JAfCuJzY1t.zIfTfhX7Zb.ep0zj0J/c4i7LXDa6.cAg0b6ikt94LG");
+        assertEquals(3, servicioClub.buscarSolicitudesDeActividad(admin, actividad).size());
+    }
+
+    @Test
+    @DirtiesContext
+    void testInstantaneaActividadesAbiertas() {
+        Statistics estadisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        Socio admin = servicioClub.login("admin@club.com", "$2a$10$JAfCuJzY1t.zIfTfhX7Zb.ep0zj0J/c4i7LXDa6.cAg0b6ikt94LG");
+        Socio socio = servicioClub.login("socio_prueba@club.com", "password123");
+        servicioClub.marcarCuotaPagada(admin, socio);
+
+        Actividad actividad = new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                10, LocalDate.now(), LocalDate.now().plusDays(7),
+                LocalDate.now().plusDays(10));
+        servicioClub.crearActividad(actividad);
+
+        //La primera lectura consulta la base de datos y las siguientes usan la instantánea.
+        List<Actividad> abiertas = servicioClub.buscarActividadesAbiertas();
+        assertEquals(1, abiertas.size());
+        estadisticas.clear();
+        assertSame(abiertas, servicioClub.buscarActividadesAbiertas());
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+        assertThrows(UnsupportedOperationException.class, () -> abiertas.add(actividad));
+
+        //Ocupar una plaza la publica en la instantánea sin volver a consultar las actividades abiertas.
+        Solicitud solicitud = servicioClub.crearSolicitud(socio.getEmail(), actividad.getId(), 0);
+        estadisticas.clear();
+        assertEquals(1, servicioClub.buscarActividadesAbiertas().getFirst().getPlazasOcupadas());
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+
+        //Cancelar una solicitud con plaza también.
+        servicioClub.cancelarSolicitud(actividad.getId(), solicitud.getId());
+        estadisticas.clear();
+        assertEquals(0, servicioClub.buscarActividadesAbiertas().getFirst().getPlazasOcupadas());
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+
+        //Una actividad nueva aparece en la siguiente lectura.
+        servicioClub.crearActividad(new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                10, LocalDate.now(), LocalDate.now().plusDays(7),
+                LocalDate.now().plusDays(10)));
+        assertEquals(2, servicioClub.buscarActividadesAbiertas().size());
+
+        //Cerrar la inscripción la retira de las actividades abiertas.
+        actividad.setFechaInicioInscripcion(LocalDate.now().plusDays(1));
+        servicioClub.modificarFechaActividad(actividad);
+        assertEquals(1, servicioClub.buscarActividadesAbiertas().size());
+
+        //La tarea de medianoche deja construida una instantánea nueva.
+        servicioClub.renovarActividadesAbiertas();
+        estadisticas.clear();
+        assertEquals(1, servicioClub.buscarActividadesAbiertas().size());
+        assertEquals(0, estadisticas.getPrepareStatementCount());
+    }
+
+    @Test
+    @DirtiesContext
+    void testFechaSegunReloj() {
+        Socio admin = servicioClub.login("admin@club.com", "$2a$10$JAfCuJzY1t.zIfTfhX7Zb.ep0zj0J/c4i7LXDa6.cAg0b6ikt94LG");
+        Socio socio = servicioClub.login("socio_prueba@club.com", "password123");
+        LocalDate hoy = LocalDate.now(reloj);
+
+        Actividad actividad = new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                10, hoy, hoy.plusDays(7), hoy.plusDays(10));
+        servicioClub.crearActividad(actividad);
+        Solicitud solicitud = servicioClub.crearSolicitud(socio, actividad, 0);
+        assertEquals(hoy, solicitud.getFecha());
+        assertEquals(1, servicioClub.buscarActividadesAbiertas().size());
+        assertThatThrownBy(() -> servicioClub.asignarPlaza(admin, actividad, solicitud)).isInstanceOf(InscripcionAbierta.class);
+
+        //Al avanzar el reloj se cierra la inscripción sin modificar las fechas de la actividad.
+        reloj.avanzar(Duration.ofDays(8));
+        assertEquals(0, servicioClub.buscarActividadesAbiertas().size());
+        assertThatThrownBy(() -> servicioClub.cancelarSolicitud(actividad.getId(), solicitud.getId())).isInstanceOf(InscripcionCerrada.class);
+        assertEquals(1, servicioClub.asignarPlaza(admin, actividad, solicitud).getPlazasAceptadas());
+
+        //La temporada programada corresponde al año del reloj.
+        reloj.avanzar(Duration.ofDays(366));
+        servicioClub.crearTemporadaProgramada();
+        assertTrue(servicioClub.buscarTemporadaPorAnio(LocalDate.now(reloj).getYear()).isPresent());
+    }
+
+    @Test
+    @DirtiesContext
+    void testAsignarPlazasListaEspera() {
+        Socio admin = servicioClub.login("admin@club.com", "$2a$10$JAfCuJzY1t.zIfTfhX7Zb.ep0zj0J/c4i7LXDa6.cAg0b6ikt94LG");
+        LocalDate hoy = LocalDate.now(reloj);
+        Actividad actividad = new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                5, hoy, hoy.plusDays(7), hoy.plusDays(10));
+        Actividad actividadAbierta = new Actividad("Actividad de prueba", "Actividad de prueba", 10,
+                5, hoy, hoy.plusDays(30), hoy.plusDays(40));
+        servicioClub.crearActividad(actividad);
+        servicioClub.crearActividad(actividadAbierta);
+
+        //Un socio con la cuota pagada, que recibe su plaza al solicitarla, y tres sin pagar.
+        Socio pagado = servicioClub.login("socio_prueba@club.com", "password123");
+        servicioClub.marcarCuotaPagada(admin, pagado);
+        List<Socio> sinPagar = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Socio socio = new Socio("Socio", "Prueba", "socio" + i + "@club.com", "621302025", "password123");
+            servicioClub.crearSocio(socio);
+            sinPagar.add(socio);
+        }
+        Solicitud conPlaza = servicioClub.crearSolicitud(pagado, actividad, 2);
+        Solicitud espera1 = servicioClub.crearSolicitud(sinPagar.get(0), actividad, 1);
+        Solicitud espera2 = servicioClub.crearSolicitud(sinPagar.get(1), actividad, 0);
+        Solicitud espera3 = servicioClub.crearSolicitud(sinPagar.get(2), actividad, 3);
+        servicioClub.crearSolicitud(sinPagar.get(0), actividadAbierta, 0);
+
+        //Mientras la inscripción está abierta no se asigna nada.
+        servicioClub.asignarPlazasListaEspera();
+        assertEquals(1, servicioClub.buscarActividadPorId(actividad.getId()).get().getPlazasOcupadas());
+
+        //Al cerrarse, primero los socios sin plaza por orden de solicitud y después los acompañantes.
+        reloj.avanzar(Duration.ofDays(8));
+        servicioClub.asignarPlazasListaEspera();
+        Actividad asignada = servicioClub.buscarActividadPorId(actividad.getId()).get();
+        assertEquals(5, asignada.getPlazasOcupadas());
+        assertTrue(asignada.isPlazasAsignadas());
+        List<Integer> plazasAceptadas = servicioClub.buscarSolicitudesDeActividad(admin, actividad).stream()
+                .map(Solicitud::getPlazasAceptadas).toList();
+        assertEquals(List.of(2, 1, 1, 1), plazasAceptadas);
+        assertEquals(List.of(conPlaza.getId(), espera1.getId(), espera2.getId(), espera3.getId()),
+                servicioClub.buscarSolicitudesDeActividad(admin, actividad).stream().map(Solicitud::getId).toList());
+
+        //La actividad que sigue abierta no se toca y una actividad ya asignada no se vuelve a asignar.
+        assertEquals(0, servicioClub.buscarActividadPorId(actividadAbierta.getId()).get().getPlazasOcupadas());
+        servicioClub.quitarPlaza(admin, asignada, espera3);
+        servicioClub.asignarPlazasListaEspera();
+        assertEquals(4, servicioClub.buscarActividadPorId(actividad.getId()).get().getPlazasOcupadas());
+    }
+
+    /**
+     * @brief Reloj del sistema que los tests pueden adelantar
+     */
+    static class RelojAjustable extends Clock {
+        private final Clock base = Clock.systemDefaultZone();
+        private volatile Duration desplazamiento = Duration.ZERO;
+
+        void avanzar(Duration duracion) {
+            desplazamiento = desplazamiento.plus(duracion);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return base.getZone();
+        }
+
+        @Override
+        public Clock withZone(ZoneId zona) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return base.instant().plus(desplazamiento);
+        }
+    }
+
+    @TestConfiguration
+    static class ConfiguracionRelojAjustable {
+        @Bean
+        @Primary
+        RelojAjustable relojAjustable() {
+            return new RelojAjustable();
+        }
+    }
 }